@@ -0,0 +1,187 @@
+package shea.mancala;
+
+import java.lang.management.ManagementFactory;
+import java.util.regex.Pattern;
+
+/**
+ * A small benchmark harness in the spirit of JMH, without dependencies.
+ * Each benchmark is warmed up, then measured over several timed iterations,
+ * reporting throughput, average time and how much it allocated.
+ */
+final class Bench {
+
+    /**
+     * A benchmarked operation, returning a value so the JIT cannot drop it
+     */
+    interface Op {
+        long run();
+    }
+
+    /**
+     * Receives every result
+     */
+    static volatile long sink;
+
+    private final int warmups, iterations;
+    private final long iterationNanos;
+    private final Pattern filter;
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Create a harness
+     *
+     * @param warmups        iterations run before measuring
+     * @param iterations     iterations measured
+     * @param iterationMillis how long each iteration runs for
+     * @param filter         only benchmarks whose name contains a match are run
+     */
+    Bench(int warmups, int iterations, long iterationMillis, String filter) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.filter = Pattern.compile(filter);
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    /**
+     * Create a harness from command line options: -wi warmups, -i iterations,
+     * -r milliseconds per iteration, and an optional name filter
+     *
+     * @param args the command line
+     * @return the harness
+     */
+    static Bench fromArgs(String[] args) {
+        int warmups = 3, iterations = 5;
+        long millis = 1000;
+        String filter = "";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-wi":
+                    warmups = Integer.parseInt(args[++i]);
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "-r":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    filter = args[i];
+            }
+        }
+
+        return new Bench(warmups, iterations, millis, filter);
+    }
+
+    /**
+     * Print the column headings
+     */
+    void printHeader() {
+        System.out.printf("%-40s %14s %14s %12s %10s%n", "Benchmark", "ops/s", "us/op", "B/op", "MB/s");
+    }
+
+    /**
+     * Measure and print one benchmark
+     *
+     * @param name the benchmark's name
+     * @param op   the operation to time
+     */
+    void run(String name, Op op) {
+        run(name, null, op);
+    }
+
+    /**
+     * Measure and print one benchmark that needs setting up before every
+     * operation, like JMH's Level.Invocation. Each operation is timed on its
+     * own, leaving the setup out of the time and the bytes allocated, so the
+     * operation should take well over a microsecond.
+     *
+     * @param name  the benchmark's name
+     * @param setup run before each operation, untimed, or null for none
+     * @param op    the operation to time
+     */
+    void run(String name, Runnable setup, Op op) {
+        if (!filter.matcher(name).find()) {
+            return;
+        }
+
+        for (int i = 0; i < warmups; i++) {
+            iteration(setup, op);
+        }
+
+        long ops = 0, nanos = 0, bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] result = iteration(setup, op);
+            ops += result[0];
+            nanos += result[1];
+            bytes += result[2];
+        }
+
+        double seconds = nanos / 1e9;
+        System.out.printf("%-40s %14.1f %14.3f %12.1f %10.1f%n", name,
+                ops / seconds, nanos / 1e3 / ops,
+                bytes < 0 ? Double.NaN : (double) bytes / ops,
+                bytes < 0 ? Double.NaN : bytes / seconds / (1 << 20));
+    }
+
+    /**
+     * Run an operation until the iteration time is used up
+     *
+     * @return operations run, nanoseconds taken and bytes allocated
+     */
+    private long[] iteration(Runnable setup, Op op) {
+        return setup == null ? iteration(op) : setUpIteration(setup, op);
+    }
+
+    /**
+     * Run an operation in growing batches until the iteration time is used up
+     */
+    private long[] iteration(Op op) {
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = threads != null ? threads.getThreadAllocatedBytes(thread) : 0;
+        long start = System.nanoTime();
+        long ops = 0, batch = 1, elapsed, result = 0;
+
+        do {
+            for (long i = 0; i < batch; i++) {
+                result += op.run();
+            }
+            ops += batch;
+            elapsed = System.nanoTime() - start;
+
+            // grow the batch, but not past what fits in the time left
+            long remaining = (iterationNanos - elapsed) * ops / Math.max(elapsed, 1);
+            batch = Math.max(1, Math.min(batch * 2, remaining));
+        } while (elapsed < iterationNanos);
+
+        long bytes = threads != null ? threads.getThreadAllocatedBytes(thread) - bytesBefore : -1;
+        sink = result;
+        return new long[]{ops, elapsed, bytes};
+    }
+
+    /**
+     * Run the setup and then the timed operation, one at a time, until the
+     * operations have taken the iteration time
+     */
+    private long[] setUpIteration(Runnable setup, Op op) {
+        long thread = Thread.currentThread().getId();
+        long ops = 0, elapsed = 0, bytes = 0, result = 0;
+
+        do {
+            setup.run();
+            long bytesBefore = threads != null ? threads.getThreadAllocatedBytes(thread) : 0;
+            long start = System.nanoTime();
+            result += op.run();
+            elapsed += System.nanoTime() - start;
+            bytes += threads != null ? threads.getThreadAllocatedBytes(thread) - bytesBefore : 0;
+            ops++;
+        } while (elapsed < iterationNanos);
+
+        sink = result;
+        return new long[]{ops, elapsed, threads != null ? bytes : -1};
+    }
+}
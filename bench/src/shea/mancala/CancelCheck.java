@@ -0,0 +1,58 @@
+package shea.mancala;
+
+import java.util.Arrays;
+
+/**
+ * Check that interrupting the thread running a ParallelSearch stops it
+ * promptly, as the game does when it cancels the AI's search or its
+ * pondering. Opening and midgame boards are searched by iterative
+ * deepening with no time limit and the search thread is interrupted after
+ * waits of different lengths, so that some interrupts land while the first
+ * move is searched and some while the pool threads search the rest. Every
+ * search must return within the bound.
+ * <p>
+ * Usage: CancelCheck [threads] [bound millis, default 100] [wait millis, default 150]
+ */
+public class CancelCheck {
+
+    private static final long HOUR = 3_600_000;
+
+    /**
+     * Run the check, exiting with status 1 if a search returns too late
+     *
+     * @param args the thread count, the bound and the shortest wait before an interrupt
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, ParallelSearch.DEFAULT_THREADS);
+        long bound = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        long wait = args.length > 2 ? Long.parseLong(args[2]) : 150;
+
+        ParallelSearch search = new ParallelSearch(threads);
+        int[][] boards = {Positions.OPENING[0], Positions.OPENING[2], Positions.MIDGAME[0], Positions.MIDGAME[3]};
+        int runs = 0;
+        long worst = 0;
+
+        for (int[] board : boards) {
+            for (int round = 1; round <= 4; round++, runs++) {
+                Thread thread = new Thread(() -> search.searchInTime(board, HOUR));
+                thread.start();
+                Thread.sleep(wait * round);
+
+                long interrupted = System.nanoTime();
+                thread.interrupt();
+                thread.join();
+                long millis = (System.nanoTime() - interrupted) / 1_000_000;
+                worst = Math.max(worst, millis);
+
+                if (millis > bound) {
+                    System.out.printf("search of %s returned %d ms after the interrupt, bound %d ms%n",
+                            Arrays.toString(board), millis, bound);
+                    System.exit(1);
+                }
+            }
+        }
+
+        search.shutdown();
+        System.out.printf("%d searches on %d threads stopped within %d ms of the interrupt%n", runs, threads, worst);
+    }
+}
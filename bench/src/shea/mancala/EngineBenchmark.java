@@ -0,0 +1,106 @@
+package shea.mancala;
+
+/**
+ * Benchmarks for move generation, evaluation and search over the
+ * opening, midgame and endgame boards in Positions.
+ * <p>
+ * Usage: EngineBenchmark [-wi warmups] [-i iterations] [-r millis] [name filter]
+ */
+public class EngineBenchmark {
+
+    private static final String[] PHASES = {"opening", "midgame", "endgame"};
+    private static final int[][][] BOARDS = {Positions.OPENING, Positions.MIDGAME, Positions.ENDGAME};
+
+    /**
+     * Run the benchmarks
+     *
+     * @param args harness options, see Bench.fromArgs
+     */
+    public static void main(String[] args) {
+        Bench bench = Bench.fromArgs(args);
+        MancalaEngine game = new MancalaEngine();
+        bench.printHeader();
+
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            final int[][] boards = BOARDS[phase];
+            final String suffix = "[" + PHASES[phase] + "]";
+            final int[] scratch = new int[14];
+
+            bench.run("moveStonesChild" + suffix, () -> {
+                long moved = 0;
+                for (int[] board : boards) {
+                    for (int pit = 0; pit < 6; pit++) {
+                        System.arraycopy(board, 0, scratch, 0, 14);
+                        if (game.moveStonesChild(pit, scratch)) {
+                            moved++;
+                        }
+                    }
+                }
+                return moved + scratch[6];
+            });
+
+            bench.run("getChildren" + suffix, () -> {
+                long children = 0;
+                for (int[] board : boards) {
+                    children += game.getChildren(board, true).size();
+                }
+                return children;
+            });
+
+            bench.run("heuristicStoneCompare" + suffix, () -> {
+                long score = 0;
+                for (int[] board : boards) {
+                    score += game.heuristicStoneCompare(board);
+                }
+                return score;
+            });
+
+            for (final String name : new String[]{"store", "side", "mobility", "threat"}) {
+                final Evaluator evaluator = Evaluator.named(name, 2);
+                bench.run("Evaluator.evaluate[" + name + "]" + suffix, () -> {
+                    long score = 0;
+                    for (int[] board : boards) {
+                        score += evaluator.evaluate(board);
+                    }
+                    return score;
+                });
+            }
+
+            final Evaluator linear = Evaluator.seedsOnSide(2);
+            final int[][] sown = new int[boards.length * 6][];
+            for (int i = 0; i < sown.length; i++) {
+                sown[i] = boards[i / 6].clone();
+                Rules.sow(i % 6, sown[i]);
+            }
+            bench.run("Evaluator.update[side]" + suffix, () -> {
+                long score = 0;
+                for (int i = 0; i < sown.length; i++) {
+                    score += linear.update(0, boards[i / 6], sown[i], i % 6);
+                }
+                return score;
+            });
+
+            for (int depth = 2; depth <= 6; depth += 2) {
+                final int d = depth;
+                bench.run("alphaBeta" + suffix + "[depth " + d + "]", () -> {
+                    long moves = 0;
+                    for (int[] board : boards) {
+                        moves += game.alphaBeta(d, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, board);
+                    }
+                    return moves;
+                });
+            }
+
+            final Search search = new Search(new TranspositionTable(16));
+            for (int depth = 4; depth <= 12; depth += 4) {
+                final int d = depth;
+                final int[] next = {0};
+                // one board per operation, each searched from an empty table cleared outside the timing
+                bench.run("Search.bestMove" + suffix + "[depth " + d + "]", () -> {
+                    search.getTable().clear();
+                    next[0] = (next[0] + 1) % boards.length;
+                }, () -> search.bestMove(boards[next[0]], d));
+            }
+        }
+    }
+}
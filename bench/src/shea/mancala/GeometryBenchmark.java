@@ -0,0 +1,98 @@
+package shea.mancala;
+
+/**
+ * Benchmarks sowing through a Geometry against the hard-coded Rules on the
+ * standard board, and random games on the 4, 6 and 8 pit boards.
+ * Geometry.sow hands six pit boards to Rules, so it measures only the cost
+ * of the extra call; Geometry.sowAny times the generic loops on the same
+ * board.
+ * A 7 pit board, which is built on request rather than when Geometry loads,
+ * shows whether the shared tables matter.
+ * <p>
+ * Usage: GeometryBenchmark [-wi warmups] [-i iterations] [-r millis] [name filter]
+ */
+public class GeometryBenchmark {
+
+    /**
+     * Run the benchmarks
+     *
+     * @param args harness options, see Bench.fromArgs
+     */
+    public static void main(String[] args) {
+        Bench bench = Bench.fromArgs(args);
+        bench.printHeader();
+
+        final int[][] boards = Positions.all();
+        final int[] scratch = new int[14];
+        final Geometry standard = Geometry.STANDARD;
+
+        bench.run("Rules.sow[6x4]", () -> {
+            long again = 0;
+            for (int[] board : boards) {
+                for (int pit = 0; pit < 6; pit++) {
+                    System.arraycopy(board, 0, scratch, 0, 14);
+                    if (Rules.sow(pit, scratch)) {
+                        again++;
+                    }
+                }
+            }
+            return again + scratch[6];
+        });
+
+        bench.run("Geometry.sow[6x4]", () -> {
+            long again = 0;
+            for (int[] board : boards) {
+                for (int pit = 0; pit < 6; pit++) {
+                    System.arraycopy(board, 0, scratch, 0, 14);
+                    if (standard.sow(pit, scratch)) {
+                        again++;
+                    }
+                }
+            }
+            return again + scratch[6];
+        });
+
+        // the generic loops every other size sows with, on the board Rules hard-codes
+        bench.run("Geometry.sowAny[6x4]", () -> {
+            long again = 0;
+            for (int[] board : boards) {
+                for (int pit = 0; pit < 6; pit++) {
+                    System.arraycopy(board, 0, scratch, 0, 14);
+                    if (standard.sowAny(pit, scratch)) {
+                        again++;
+                    }
+                }
+            }
+            return again + scratch[6];
+        });
+
+        for (Geometry geometry : new Geometry[]{Geometry.of(4, 3), Geometry.STANDARD,
+                Geometry.of(7, 4), Geometry.of(8, 6)}) {
+            final int[] start = geometry.start();
+            final int[] board = new int[geometry.size];
+            final long[] random = {1};
+
+            bench.run("random game[" + geometry + "]", () -> {
+                System.arraycopy(start, 0, board, 0, board.length);
+                long plies = 0;
+
+                while (!geometry.isGameOver(board)) {
+                    random[0] ^= random[0] << 13;
+                    random[0] ^= random[0] >>> 7;
+                    random[0] ^= random[0] << 17;
+
+                    int pit = (int) ((random[0] >>> 33) % geometry.pits);
+                    while (board[pit] == 0) {
+                        pit = pit == geometry.pits - 1 ? 0 : pit + 1;
+                    }
+
+                    if (!geometry.sow(pit, board)) {
+                        geometry.swapSides(board);
+                    }
+                    plies++;
+                }
+                return plies;
+            });
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package shea.mancala;
+
+/**
+ * The sowing routines as they were before sowing was done in closed form,
+ * one stone per loop iteration. Kept as the reference SowingCheck compares
+ * against and the baseline SowingBenchmark measures.
+ */
+final class LegacySowing {
+
+    private static final int BITS = 6;
+    private static final long PIT_MASK = (1L << BITS) - 1;
+
+    private LegacySowing() {
+    }
+
+    /**
+     * Sow a pit one stone at a time, as Rules.sow did
+     *
+     * @param pit   the pit to empty
+     * @param board the board to change
+     * @return true if the pit was empty or the last stone landed in store 6
+     */
+    static boolean sow(final int pit, int[] board) {
+        int pointer = pit;
+
+        // return if pit has no stones
+        if (board[pit] < 1) {
+            return true;  //true means go again
+        }
+
+        // take stones out of pit
+        int stones = board[pit];
+        board[pit] = 0;
+
+        while (stones > 0) {
+            ++pointer;
+
+            // skip other player's storage pit and reset pointer
+            if (pointer == 13) {
+                pointer = 0;
+            } else {
+                board[pointer]++;
+                stones--;
+            }
+        }
+
+        // set to point to the opposite pit
+        int inversePointer = -pointer + 12;
+
+        // Check for capture
+        if (pointer < 6 && board[pointer] == 1 && board[inversePointer] > 0) {
+
+            // Transfer this stone along with opposite pit's stones to store
+            board[6] += board[inversePointer] + 1;
+
+            // Clear the pits
+            board[pointer] = 0;
+            board[inversePointer] = 0;
+        }
+
+        return pointer == 6;
+    }
+
+    /**
+     * Sow a packed board one stone at a time, as PackedBoard.sow did
+     *
+     * @param board the board before the move
+     * @param pit   the pit to empty
+     * @return the board after the move
+     */
+    static PackedBoard sow(PackedBoard board, int pit) {
+        int stones = board.get(pit);
+        if (stones < 1) {
+            return board;
+        }
+
+        long low = board.low, high = board.high;
+        if (pit < 7) {
+            low &= ~(PIT_MASK << (pit * BITS));
+        } else {
+            high &= ~(PIT_MASK << ((pit - 7) * BITS));
+        }
+
+        // sow one stone per pit, wrapping from pit 12 to pit 1 like Rules.sow
+        int pointer = pit;
+        while (stones > 0) {
+            pointer = pointer == 12 ? 1 : pointer + 1;
+            if (pointer < 7) {
+                low += 1L << (pointer * BITS);
+            } else {
+                high += 1L << ((pointer - 7) * BITS);
+            }
+            stones--;
+        }
+
+        // capture the opposite pit when the last stone lands in an empty pit of our row
+        if (pointer < 6 && (low >>> (pointer * BITS) & PIT_MASK) == 1) {
+            int shift = (12 - pointer - 7) * BITS;
+            long captured = high >>> shift & PIT_MASK;
+            if (captured > 0) {
+                low &= ~(PIT_MASK << (pointer * BITS));
+                high &= ~(PIT_MASK << shift);
+                low += (captured + 1) << (6 * BITS);
+            }
+        }
+
+        return new PackedBoard(low, high);
+    }
+}
@@ -0,0 +1,60 @@
+package shea.mancala;
+
+/**
+ * Check that pondering cuts the time the AI takes to answer the move it
+ * pondered on. An engine ponders on the opening board while player 1
+ * would be thinking, player 1 sows pit 0, and the AI's reply must come in
+ * under half its time budget, from a search at least as deep as a fresh
+ * engine reaches in the whole budget, with its statistics timing the reply
+ * rather than the pondering.
+ * <p>
+ * Usage: PonderCheck [AI millis, default 50] [ponder millis, default 6000]
+ */
+public class PonderCheck {
+
+    /**
+     * Run the check, exiting with status 1 if the pondered reply is not faster
+     *
+     * @param args the AI's time per move and how long to ponder
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long aiMillis = args.length > 0 ? Long.parseLong(args[0]) : 50;
+        long ponderMillis = args.length > 1 ? Long.parseLong(args[1]) : 6000;
+
+        MancalaEngine fresh = new MancalaEngine();
+        fresh.setAiMoveMillis(aiMillis);
+        fresh.applyMove(0);
+        fresh.findBestMove(fresh.getPits());
+        SearchStats unpondered = fresh.findBestMove(fresh.getPits());
+
+        MancalaEngine engine = new MancalaEngine();
+        engine.setAiMoveMillis(aiMillis);
+        int[] start = engine.getPits();
+        Thread ponder = new Thread(() -> engine.ponder(start));
+        ponder.start();
+        Thread.sleep(ponderMillis);
+        ponder.interrupt();
+        ponder.join();
+
+        // sowing pit 0 passes the turn to the AI
+        engine.applyMove(0);
+        long started = System.nanoTime();
+        SearchStats pondered = engine.findBestMove(engine.getPits());
+        double millis = (System.nanoTime() - started) / 1e6;
+
+        System.out.printf("without pondering: %s%nafter pondering, answered in %.1f ms: %s%n",
+                unpondered, millis, pondered);
+
+        // the reply's stats must time the reply, not the pondering before it
+        if (pondered.elapsedMillis() > millis) {
+            System.out.printf("the reply was reported as taking %.1f ms but took %.1f ms%n",
+                    pondered.elapsedMillis(), millis);
+            System.exit(1);
+        }
+        if (millis >= aiMillis / 2.0 || pondered.depth < unpondered.depth) {
+            System.out.printf("the pondered reply took %.1f ms of %d at depth %d, fresh depth %d%n",
+                    millis, aiMillis, pondered.depth, unpondered.depth);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package shea.mancala;
+
+/**
+ * Benchmarks the closed-form sowing of Rules and PackedBoard against the
+ * old per-stone routines, on the boards in Positions and on boards with
+ * the stones piled into a few pits.
+ * <p>
+ * Usage: SowingBenchmark [-wi warmups] [-i iterations] [-r millis] [name filter]
+ */
+public class SowingBenchmark {
+
+    /**
+     * Boards with the player to move holding pits of 12 to 36 stones
+     */
+    static final int[][] HIGH_SEEDS = {
+            {36, 0, 0, 0, 0, 0, 4, 2, 1, 1, 1, 1, 1, 1},
+            {0, 24, 0, 12, 0, 0, 0, 3, 0, 3, 0, 3, 0, 3},
+            {14, 13, 0, 0, 12, 0, 2, 1, 0, 0, 2, 0, 1, 3},
+            {0, 0, 30, 0, 0, 15, 1, 0, 0, 0, 1, 0, 0, 1},
+    };
+
+    private static final String[] SETS = {"positions", "high seeds"};
+    private static final int[][][] BOARDS = {Positions.all(), HIGH_SEEDS};
+
+    /**
+     * Run the benchmarks
+     *
+     * @param args harness options, see Bench.fromArgs
+     */
+    public static void main(String[] args) {
+        Bench bench = Bench.fromArgs(args);
+        bench.printHeader();
+
+        for (int set = 0; set < SETS.length; set++) {
+            final int[][] boards = BOARDS[set];
+            final PackedBoard[] packed = new PackedBoard[boards.length];
+            for (int i = 0; i < boards.length; i++) {
+                packed[i] = PackedBoard.of(boards[i]);
+            }
+
+            final String suffix = "[" + SETS[set] + "]";
+            final int[] scratch = new int[14];
+
+            bench.run("LegacySowing.sow" + suffix, () -> {
+                long again = 0;
+                for (int[] board : boards) {
+                    for (int pit = 0; pit < 6; pit++) {
+                        System.arraycopy(board, 0, scratch, 0, 14);
+                        if (LegacySowing.sow(pit, scratch)) {
+                            again++;
+                        }
+                    }
+                }
+                return again + scratch[6];
+            });
+
+            bench.run("Rules.sow" + suffix, () -> {
+                long again = 0;
+                for (int[] board : boards) {
+                    for (int pit = 0; pit < 6; pit++) {
+                        System.arraycopy(board, 0, scratch, 0, 14);
+                        if (Rules.sow(pit, scratch)) {
+                            again++;
+                        }
+                    }
+                }
+                return again + scratch[6];
+            });
+
+            bench.run("LegacySowing.sow(PackedBoard)" + suffix, () -> {
+                long sum = 0;
+                for (PackedBoard board : packed) {
+                    for (int pit = 0; pit < 6; pit++) {
+                        sum += LegacySowing.sow(board, pit).low;
+                    }
+                }
+                return sum;
+            });
+
+            bench.run("PackedBoard.sow" + suffix, () -> {
+                long sum = 0;
+                for (PackedBoard board : packed) {
+                    for (int pit = 0; pit < 6; pit++) {
+                        sum += board.sow(pit).low;
+                    }
+                }
+                return sum;
+            });
+        }
+    }
+}
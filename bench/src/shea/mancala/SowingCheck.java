@@ -0,0 +1,86 @@
+package shea.mancala;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Compare the closed-form sowing of Rules and PackedBoard, and Geometry's
+ * generic sowing of the standard board, with the old per-stone routines in
+ * LegacySowing on random boards, from every pit.
+ * Boards are drawn with the 48 stones of a game spread evenly, piled into
+ * a few pits, or all in one pit, so every lap count is covered.
+ * <p>
+ * Usage: SowingCheck [boards, default 1000000] [seed]
+ */
+public class SowingCheck {
+
+    /**
+     * Run the comparison, exiting with status 1 on the first difference
+     *
+     * @param args the number of boards and the random seed
+     */
+    public static void main(String[] args) {
+        long boards = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        SplittableRandom random = new SplittableRandom(args.length > 1 ? Long.parseLong(args[1]) : 1);
+
+        int[] board = new int[14];
+        int[] expected = new int[14];
+        int[] actual = new int[14];
+        long moves = 0;
+
+        for (long n = 0; n < boards; n++) {
+            randomBoard(random, board);
+            PackedBoard packed = PackedBoard.of(board);
+
+            for (int pit = 0; pit < 13; pit++) {
+                if (pit == 6) {
+                    continue;
+                }
+
+                System.arraycopy(board, 0, expected, 0, 14);
+                System.arraycopy(board, 0, actual, 0, 14);
+                boolean expectedAgain = LegacySowing.sow(pit, expected);
+                boolean actualAgain = Rules.sow(pit, actual);
+                int[] generic = board.clone();
+                boolean genericAgain = Geometry.STANDARD.sowAny(pit, generic);
+
+                if (expectedAgain != actualAgain || !Arrays.equals(expected, actual)
+                        || genericAgain != expectedAgain || !Arrays.equals(expected, generic)
+                        || !packed.sow(pit).equals(LegacySowing.sow(packed, pit))
+                        || packed.isExtraTurn(pit) != expectedAgain) {
+                    System.out.printf("pit %d of %s: expected %s %b, got %s %b, generic %s %b, packed %s%n",
+                            pit, Arrays.toString(board), Arrays.toString(expected), expectedAgain,
+                            Arrays.toString(actual), actualAgain, Arrays.toString(generic), genericAgain,
+                            packed.sow(pit));
+                    System.exit(1);
+                }
+                moves++;
+            }
+        }
+
+        System.out.printf("%d boards, %d moves, no differences%n", boards, moves);
+    }
+
+    /**
+     * Spread the stones of a game over a board, some of them already stored
+     */
+    private static void randomBoard(SplittableRandom random, int[] board) {
+        Arrays.fill(board, 0);
+        int stones = 48;
+        int stored = random.nextInt(stones);
+        board[6] = random.nextInt(stored + 1);
+        board[13] = stored - board[6];
+        stones -= stored;
+
+        // how many pits the stones in play are piled into
+        int pits = 1 + random.nextInt(random.nextBoolean() ? 12 : 3);
+        int[] chosen = new int[pits];
+        for (int i = 0; i < pits; i++) {
+            int pit = random.nextInt(12);
+            chosen[i] = pit < 6 ? pit : pit + 1;
+        }
+        while (stones-- > 0) {
+            board[chosen[random.nextInt(pits)]]++;
+        }
+    }
+}
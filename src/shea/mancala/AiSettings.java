@@ -0,0 +1,216 @@
+package shea.mancala;
+
+/**
+ * How an AI player searches: to a fixed depth or within a time budget,
+ * with which algorithm, and how it scores boards. Written as
+ * "depth=8,eval=mobility,store=2,algo=pvs,quiet=4" or "millis=50", or for
+ * Monte Carlo tree search as "engine=mcts,playouts=20000" or
+ * "engine=mcts,millis=50".
+ */
+final class AiSettings {
+
+    /**
+     * Picks the moves of one AI player, on one thread
+     */
+    interface Player {
+
+        /**
+         * Choose a move
+         *
+         * @param board the board with the player's pits in 0-5
+         * @return the move found and the work done
+         */
+        SearchStats move(int[] board);
+    }
+
+    /**
+     * Playouts a Monte Carlo search on one thread is taken to manage per
+     * millisecond, a few times what it does, to size its tree for a time budget
+     */
+    private static final int PLAYOUTS_PER_MILLI = 500;
+
+    /**
+     * Plies to search, or 0 to search within the time budget instead
+     */
+    final int depth;
+
+    /**
+     * Time budget per move in milliseconds, used when depth is 0
+     */
+    final long millis;
+
+    /**
+     * How many times more a stone in a store counts than one in a pit
+     */
+    final int storeWeight;
+
+    /**
+     * Name of the evaluator, as given to Evaluator.named
+     */
+    final String evaluator;
+
+    final Search.Algorithm algorithm;
+
+    /**
+     * Most plies of extra turns and captures searched past the horizon
+     */
+    final int quiescence;
+
+    /**
+     * Whether moves are found by MonteCarloSearch instead of Search
+     */
+    final boolean monteCarlo;
+
+    /**
+     * Games to play out per move with Monte Carlo tree search, or 0 to use the time budget
+     */
+    final long playouts;
+
+    AiSettings(int depth, long millis, String evaluator, int storeWeight, Search.Algorithm algorithm,
+               int quiescence, boolean monteCarlo, long playouts) {
+        if (monteCarlo) {
+            if (depth != 0 || playouts < 0 || (playouts == 0 && millis < 1)) {
+                throw new IllegalArgumentException("Monte Carlo search needs a playout count or a positive time budget");
+            }
+        } else if (playouts != 0) {
+            throw new IllegalArgumentException("playouts need engine=mcts");
+        } else if (depth < 0 || depth > Search.MAX_DEPTH || (depth == 0 && millis < 1)) {
+            throw new IllegalArgumentException("need a depth of 1-" + Search.MAX_DEPTH + " or a positive time budget");
+        } else if (quiescence < 0 || quiescence > Search.MAX_DEPTH) {
+            throw new IllegalArgumentException("need a quiescence of 0-" + Search.MAX_DEPTH + " plies");
+        }
+
+        this.monteCarlo = monteCarlo;
+        this.playouts = playouts;
+        this.depth = depth;
+        this.millis = millis;
+        this.evaluator = evaluator;
+        this.storeWeight = storeWeight;
+        this.algorithm = algorithm;
+        this.quiescence = quiescence;
+
+        // reject an unknown name here rather than on a search thread
+        Evaluator.named(evaluator, storeWeight);
+    }
+
+    /**
+     * Read settings written as comma separated key=value pairs
+     *
+     * @param spec for example "depth=8,eval=mobility,store=2,algo=pvs,quiet=4" or "engine=mcts,playouts=20000"
+     * @return the settings, searching for 100 ms with the side evaluator,
+     * a store weight of 2 and the default algorithm and quiescence unless given
+     * @throws IllegalArgumentException if a key or value is not understood
+     */
+    static AiSettings parse(String spec) {
+        int depth = 0, storeWeight = 2, quiescence = Search.DEFAULT_QUIESCENCE;
+        long millis = 100, playouts = 0;
+        boolean monteCarlo = false;
+        String evaluator = "side";
+        Search.Algorithm algorithm = Search.DEFAULT_ALGORITHM;
+
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("expected key=value but got " + pair);
+            }
+
+            String value = parts[1].trim();
+            switch (parts[0].trim()) {
+                case "depth":
+                    depth = Integer.parseInt(value);
+                    break;
+                case "millis":
+                    millis = Long.parseLong(value);
+                    break;
+                case "eval":
+                    evaluator = value;
+                    break;
+                case "store":
+                    storeWeight = Integer.parseInt(value);
+                    break;
+                case "algo":
+                    algorithm = Search.Algorithm.valueOf(value.toUpperCase());
+                    break;
+                case "quiet":
+                    quiescence = Integer.parseInt(value);
+                    break;
+                case "engine":
+                    if (!value.equals("mcts") && !value.equals("alphabeta")) {
+                        throw new IllegalArgumentException("unknown engine " + value);
+                    }
+                    monteCarlo = value.equals("mcts");
+                    break;
+                case "playouts":
+                    playouts = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown setting " + parts[0]);
+            }
+        }
+
+        return new AiSettings(depth, millis, evaluator, storeWeight, algorithm, quiescence, monteCarlo, playouts);
+    }
+
+    /**
+     * Create a player using these settings, with its own search, a Monte
+     * Carlo tree being sized for the budget
+     *
+     * @param tableBits the size of an alpha-beta search's transposition table as a power of two
+     * @return the player
+     */
+    Player newPlayer(int tableBits) {
+        if (monteCarlo) {
+            MonteCarloSearch search = new MonteCarloSearch(Geometry.STANDARD, 1, treeNodes());
+            return board -> playouts > 0 ? search.searchPlayouts(board, playouts) : search.searchInTime(board, millis);
+        }
+
+        Search search = newSearch(tableBits);
+        return board -> search(search, board);
+    }
+
+    /**
+     * Size a Monte Carlo player's tree for its budget. Each playout expands
+     * at most one node, adding a child per pit, so a tree of the default
+     * size is only needed for long searches.
+     *
+     * @return how many nodes the tree needs, at most MonteCarloSearch.DEFAULT_NODES
+     */
+    private int treeNodes() {
+        long budget = playouts > 0 ? playouts : millis * PLAYOUTS_PER_MILLI;
+        return (int) Math.min(MonteCarloSearch.DEFAULT_NODES, 1 + (budget + 1) * Geometry.STANDARD.pits);
+    }
+
+    /**
+     * Create a search using these settings
+     *
+     * @param tableBits the size of its transposition table as a power of two
+     * @return the search
+     */
+    Search newSearch(int tableBits) {
+        Search search = new Search(new TranspositionTable(tableBits));
+        search.setEvaluator(Evaluator.named(evaluator, storeWeight));
+        search.setAlgorithm(algorithm);
+        search.setQuiescence(quiescence);
+        return search;
+    }
+
+    /**
+     * Search a board to the depth or within the time these settings give
+     *
+     * @param search a search made by newSearch
+     * @param board  the board with the player to move in pits 0-5
+     * @return the move found and the work done
+     */
+    SearchStats search(Search search, int[] board) {
+        return depth > 0 ? search.searchDepth(board, depth) : search.searchInTime(board, millis);
+    }
+
+    @Override
+    public String toString() {
+        if (monteCarlo) {
+            return "engine=mcts," + (playouts > 0 ? "playouts=" + playouts : "millis=" + millis);
+        }
+        return (depth > 0 ? "depth=" + depth : "millis=" + millis) + ",eval=" + evaluator + ",store=" + storeWeight
+                + ",algo=" + algorithm.name().toLowerCase() + ",quiet=" + quiescence;
+    }
+}
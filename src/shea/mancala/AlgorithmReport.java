@@ -0,0 +1,61 @@
+package shea.mancala;
+
+/**
+ * Compare the search algorithms on the boards in Positions.
+ * Every board is searched to a fixed depth with each algorithm and an
+ * empty table, reporting the nodes and time taken and checking that the
+ * scores match plain alpha-beta.
+ * <p>
+ * Usage: AlgorithmReport [depth, default 12] [rounds, default 5]
+ */
+public class AlgorithmReport {
+
+    /**
+     * Print the report
+     *
+     * @param args the depth and how many times to time each algorithm, keeping the fastest
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[][] boards = Positions.all();
+        int[] scores = new int[boards.length];
+
+        Search reference = new Search();
+        reference.setAlgorithm(Search.Algorithm.ALPHA_BETA);
+        for (int i = 0; i < boards.length; i++) {
+            scores[i] = reference.searchDepth(boards[i], depth).score;
+        }
+
+        System.out.printf("Depth %d, %d boards, fastest of %d rounds%n", depth, boards.length, rounds);
+        System.out.printf("%-12s %12s %10s %10s %s%n", "algorithm", "nodes", "ms", "ms/move", "result");
+
+        for (Search.Algorithm algorithm : Search.Algorithm.values()) {
+            Search search = new Search();
+            search.setAlgorithm(algorithm);
+
+            long nodes = 0, best = Long.MAX_VALUE;
+            int mismatches = 0;
+
+            for (int round = 0; round < rounds; round++) {
+                long time = 0;
+                nodes = 0;
+
+                for (int i = 0; i < boards.length; i++) {
+                    search.getTable().clear();
+                    SearchStats stats = search.searchDepth(boards[i], depth);
+                    time += stats.elapsedNanos;
+                    nodes += stats.nodes;
+
+                    if (round == 0 && stats.score != scores[i]) {
+                        mismatches++;
+                    }
+                }
+                best = Math.min(best, time);
+            }
+
+            System.out.printf("%-12s %12d %10.1f %10.2f %s%n", algorithm, nodes, best / 1e6,
+                    best / 1e6 / boards.length, mismatches == 0 ? "matches" : mismatches + " mismatches");
+        }
+    }
+}
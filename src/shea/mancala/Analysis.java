@@ -0,0 +1,297 @@
+package shea.mancala;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Scores every legal move of a board at once (multi-PV), one ply deeper at
+ * a time, until stopped. Each task searches one pit to one depth with the
+ * full window, so its score is exact, then queues the next depth of the
+ * same pit behind the other pits, letting all of them deepen together on
+ * however many threads there are. The threads share one table.
+ * <p>
+ * Finished depths are kept as the latest Line of each pit. A separate
+ * thread hands the lines that changed to the listener at most once per
+ * UPDATE_MILLIS, dropping the ones in between, so a slow listener never
+ * holds back the searches.
+ */
+final class Analysis {
+
+    /**
+     * Told of the analysis as it deepens
+     */
+    interface Listener {
+
+        /**
+         * Receive a pit's latest result, on the analysis' own thread
+         *
+         * @param line the deepest search finished for the pit
+         */
+        void update(Line line);
+    }
+
+    /**
+     * The result of searching one move of a board to one depth
+     */
+    static final class Line {
+
+        /**
+         * The board analysed, laid out for the player to move; not to be changed
+         */
+        final int[] board;
+
+        final int pit, depth, score;
+
+        /**
+         * The moves expected to follow, starting with pit, each from the side of the player sowing it
+         */
+        final int[] pv;
+
+        /**
+         * Nodes searched for this pit so far, over all depths
+         */
+        final long nodes;
+
+        Line(int[] board, int pit, int depth, int score, int[] pv, long nodes) {
+            this.board = board;
+            this.pit = pit;
+            this.depth = depth;
+            this.score = score;
+            this.pv = pv;
+            this.nodes = nodes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pit %d: depth %d, score %+d, pv %s, %d nodes",
+                    pit, depth, score, Arrays.toString(pv), nodes);
+        }
+    }
+
+    /**
+     * Least time between two updates of the same listener, in milliseconds
+     */
+    static final long UPDATE_MILLIS = Long.getLong("mancala.analysis.millis", 100);
+
+    /**
+     * Most moves of a principal variation kept in a Line
+     */
+    static final int PV_LENGTH = 8;
+
+    private final ExecutorService pool;
+    private final ScheduledExecutorService updates;
+    private final TranspositionTable table;
+    private final EndgameTable endgame;
+    private final Evaluator evaluator;
+    private final Listener listener;
+
+    /**
+     * Searches not in use by a task, shared by every run. A task takes one,
+     * or creates one if all are busy, so there are never more than threads.
+     */
+    private final ConcurrentLinkedQueue<Search> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The board being analysed, or null once stopped
+     */
+    private volatile Run current;
+
+    /**
+     * Analyse boards on some threads
+     *
+     * @param threads   how many moves to search at the same time
+     * @param table     the table shared by every thread
+     * @param endgame   the endgame table to probe, or null
+     * @param evaluator scores the leaves, shared by every thread
+     * @param listener  told of each pit's latest line
+     */
+    Analysis(int threads, TranspositionTable table, EndgameTable endgame, Evaluator evaluator, Listener listener) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        this.table = table;
+        this.endgame = endgame;
+        this.evaluator = evaluator;
+        this.listener = listener;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("mancala-analysis-"));
+
+        ScheduledThreadPoolExecutor updates = new ScheduledThreadPoolExecutor(1, daemonThreads("mancala-analysis-updates-"));
+        updates.scheduleWithFixedDelay(this::sendUpdates, UPDATE_MILLIS, UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+        this.updates = updates;
+    }
+
+    /**
+     * Start analysing a board, stopping the analysis of the previous one
+     *
+     * @param board the board with the player to move in pits 0-5
+     */
+    synchronized void start(int[] board) {
+        stop();
+        if (Rules.isGameOver(board)) {
+            return;
+        }
+
+        Run run = new Run(board.clone());
+        current = run;
+        table.newSearch();
+
+        for (int pit = 0; pit < 6; pit++) {
+            if (board[pit] > 0) {
+                run.submit(pit, 1);
+            }
+        }
+    }
+
+    /**
+     * Stop analysing; searches in progress give up within a few thousand nodes
+     */
+    synchronized void stop() {
+        Run run = current;
+        if (run != null) {
+            run.stop.set(true);
+            current = null;
+        }
+    }
+
+    /**
+     * Stop analysing for good and end the threads
+     */
+    synchronized void close() {
+        stop();
+        pool.shutdownNow();
+        updates.shutdownNow();
+    }
+
+    /**
+     * Retrieve the latest result of each pit
+     *
+     * @return lines indexed by pit, null for pits not searched yet; empty once stopped
+     */
+    Line[] getLines() {
+        Run run = current;
+        Line[] lines = new Line[6];
+        for (int pit = 0; run != null && pit < 6; pit++) {
+            lines[pit] = run.lines.get(pit);
+        }
+        return lines;
+    }
+
+    /**
+     * Hand the lines that changed since the last call to the listener
+     */
+    private void sendUpdates() {
+        Run run = current;
+        if (run == null) {
+            return;
+        }
+
+        int changed = run.changed.getAndSet(0);
+        for (int pit = 0; pit < 6; pit++) {
+            if ((changed & 1 << pit) != 0 && !run.stop.get()) {
+                listener.update(run.lines.get(pit));
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The analysis of one board
+     */
+    private final class Run {
+
+        private final int[] board;
+        private final AtomicBoolean stop = new AtomicBoolean();
+
+        private final AtomicReferenceArray<Line> lines = new AtomicReferenceArray<>(6);
+
+        /**
+         * A bit for each pit whose line changed since the listener was last told
+         */
+        private final AtomicInteger changed = new AtomicInteger();
+
+        Run(int[] board) {
+            this.board = board;
+        }
+
+        /**
+         * Take an idle search, stopped with this run
+         */
+        private Search takeSearch() {
+            Search search = idle.poll();
+            if (search == null) {
+                search = new Search(table, stop);
+                search.setEndgameTable(endgame);
+                search.setEvaluator(evaluator);
+            } else {
+                search.setStop(stop);
+            }
+            return search;
+        }
+
+        /**
+         * Queue the search of a pit to a depth
+         */
+        void submit(int pit, int depth) {
+            try {
+                pool.execute(() -> search(pit, depth));
+            } catch (RejectedExecutionException e) {
+                // closed while deepening
+            }
+        }
+
+        private void search(int pit, int depth) {
+            if (stop.get()) {
+                return;
+            }
+
+            Search search = takeSearch();
+            int score, maxPly;
+            int[] pv;
+            long nodes;
+            try {
+                search.resetStats();
+                score = search.searchMove(board, pit, depth, -Search.INFINITY, Search.INFINITY, 0);
+
+                if (search.isAborted() || stop.get()) {
+                    return;
+                }
+                pv = search.principalVariation(board, pit, PV_LENGTH);
+                nodes = search.getNodes();
+                maxPly = search.getMaxPly();
+            } finally {
+                idle.add(search);
+            }
+
+            Line previous = lines.get(pit);
+            nodes += previous != null ? previous.nodes : 0;
+            lines.set(pit, new Line(board, pit, depth, score, pv, nodes));
+            changed.getAndUpdate(bits -> bits | 1 << pit);
+
+            // a search that ended every line before its depth would find the same score deeper
+            if (maxPly >= depth && depth < Search.MAX_DEPTH) {
+                submit(pit, depth + 1);
+            }
+        }
+    }
+}
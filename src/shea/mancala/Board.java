@@ -3,6 +3,10 @@ package shea.mancala;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 
 /**
  * Draw a Mancala board
@@ -17,6 +21,21 @@ class Board {
 	final Color playerOneColor, playerTwoColor;
 	private MancalaGame game;
 
+	/**
+	 * The number of pits drawn in each row
+	 */
+	private final Geometry geometry;
+
+	/**
+	 * The size of the board, which never changes
+	 */
+	private final Dimension size;
+
+	/**
+	 * The pits and stores drawn with each player's turn, created when first needed
+	 */
+	private final BufferedImage[] images = new BufferedImage[2];
+
 	/**
 	 * Initialize the class
 	 * @param game instance of MancalaGame
@@ -27,6 +46,11 @@ class Board {
 		this.game = game;
 		this.playerOneColor = playerOneColor;
 		this.playerTwoColor = playerTwoColor;
+		this.geometry = game.engine.getGeometry();
+
+		int height = 2 * (outerPadding + pitHeight) + innerPadding;
+		int width = geometry.pits * (pitWidth + innerPadding ) + 2 * (storeWidth + outerPadding);
+		this.size = new Dimension(width, height);
 	}
 
 	/**
@@ -34,7 +58,7 @@ class Board {
 	 * @return the player's color
 	 */
 	protected Color getCurrentPlayerColor() {
-		return game.getCurrentPlayer() == 1 ? playerOneColor : playerTwoColor;
+		return game.getShownPlayer() == 1 ? playerOneColor : playerTwoColor;
 	}
 
 	/**
@@ -42,7 +66,7 @@ class Board {
 	 * @return the player's color
 	 */
 	protected Color getOtherPlayerColor() {
-		return game.getOtherPlayer() == 1 ? playerOneColor : playerTwoColor;
+		return game.getShownPlayer() == 1 ? playerTwoColor : playerOneColor;
 	}
 
 	/**
@@ -50,9 +74,7 @@ class Board {
 	 * @return
 	 */
 	public Dimension getSize() {
-		int height = 2 * (outerPadding + pitHeight) + innerPadding;
-		int width = 6 * (pitWidth + innerPadding ) + 2 * (storeWidth + outerPadding);
-		return new Dimension(width, height);
+		return new Dimension(size);
 	}
 
 	/**
@@ -63,7 +85,7 @@ class Board {
 	 */
 	protected void drawRow(Graphics g, int x, int y) {
 
-		for (int i = 0; i < 6; ++i ) {
+		for (int i = 0; i < geometry.pits; ++i ) {
 			g.drawOval(x, y, pitWidth, pitHeight);
 			x += pitWidth + outerPadding;
 		}
@@ -85,9 +107,9 @@ class Board {
 				round, round
 				);
 
-		/* second mancala must be after all six boxes,
+		/* second mancala must be after all the boxes,
 		 * plus the first mancala, plus padding */
-		int x = outerPadding + storeWidth + 6 * ( innerPadding + pitWidth );
+		int x = outerPadding + storeWidth + geometry.pits * ( innerPadding + pitWidth );
 
 		g.setColor(getOtherPlayerColor());
 		g.drawRoundRect(
@@ -113,6 +135,44 @@ class Board {
 		drawRow(g, rowX, outerPadding + pitHeight + innerPadding );
 	}
 
+	/**
+	 * Get the pits and stores as drawn by drawBoard, from a cache.
+	 * The colors depend on whose turn is shown, so there is one image per player.
+	 * @return an image the size of the board, transparent between the pits
+	 */
+	public Image getBoardImage() {
+		int player = game.getShownPlayer();
+
+		if (images[player - 1] == null) {
+			BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			g.setColor(Color.black);
+			drawBoard(g);
+			g.dispose();
+			images[player - 1] = image;
+		}
+
+		return images[player - 1];
+	}
+
+	/**
+	 * Get the area to repaint when the stones in a pit change
+	 * @param pit a pit number
+	 * @return a rectangle covering the pit and its count
+	 */
+	public Rectangle getPitBounds(int pit) {
+		Rectangle bounds;
+
+		if (isStore(pit)) {
+			bounds = new Rectangle(getPitCenterX(pit) - storeWidth / 2, outerPadding, storeWidth, storeHeight);
+		} else {
+			bounds = new Rectangle(getPitX(pit), getPitY(pit), pitWidth, pitHeight);
+		}
+
+		bounds.grow(2, 2);
+		return bounds;
+	}
+
 	/**
 	 * Retrieve the X position of a pit
 	 * @param pit a pit number
@@ -122,15 +182,15 @@ class Board {
 		int x;
 
 		// check if pit is a store
-		if ( pit == 6 || pit == 13 ) {
+		if ( isStore(pit) ) {
 			x = outerPadding + storeWidth / 2;
 
 			// subtract pit x from screen width
-			x = (pit == 6) ? getSize().width - x : x;
+			x = (pit == geometry.store) ? size.width - x : x;
 		} else {
 
 			// reverse the top row numbers
-			if (pit > 6) pit = -pit + 12;
+			if (pit > geometry.store) pit = -pit + geometry.lap;
 
 			// begin with outside padding + mancala
 			x = outerPadding + storeWidth;
@@ -153,7 +213,7 @@ class Board {
 	public int getPitY(int pit) {
 
 		// check if a pit is a store or in the second row
-		if ( pit <= 6 || pit == 13 ) {
+		if ( pit <= geometry.store || pit == geometry.otherStore ) {
 			return outerPadding * 2 + pitHeight;
 		}
 
@@ -168,7 +228,7 @@ class Board {
 	public int getPitCenterX(int pit) {
 		int x = getPitX(pit);
 
-		if (pit != 6 && pit != 13) {
+		if (!isStore(pit)) {
 			x += pitWidth/2;
 		}
 
@@ -183,10 +243,19 @@ class Board {
 	public int getPitCenterY(int pit) {
 		int y = getPitY(pit);
 
-		if (pit != 6 && pit != 13) {
+		if (!isStore(pit)) {
 			y += pitHeight/2;
 		}
 
 		return y;
 	}
+
+	/**
+	 * Check whether a pit number is one of the stores
+	 * @param pit a pit number
+	 * @return true for either player's store
+	 */
+	public boolean isStore(int pit) {
+		return pit == geometry.store || pit == geometry.otherStore;
+	}
 }
@@ -0,0 +1,47 @@
+package shea.mancala;
+
+/**
+ * Scores the stones on each side as seedsOnSide does, plus the largest
+ * capture each player could make if it were their move.
+ */
+final class CaptureThreatEvaluator implements Evaluator {
+
+    private final Evaluator stones;
+
+    CaptureThreatEvaluator(int storeWeight) {
+        this.stones = Evaluator.seedsOnSide(storeWeight);
+    }
+
+    @Override
+    public int evaluate(int[] board) {
+        return stones.evaluate(board) + bestCapture(board, 0) - bestCapture(board, 7);
+    }
+
+    /**
+     * Find the most stones a player could capture with one move
+     *
+     * @param first the first pit of the player's row, 0 or 7
+     */
+    private static int bestCapture(int[] board, int first) {
+        int best = 0;
+
+        // only sowings of less than a lap are counted, as longer ones
+        // almost always land on a pit they have already filled
+        for (int i = 0; i < 6; i++) {
+            int stones = board[first + i];
+            if (stones == 0 || stones >= Rules.LAP) {
+                continue;
+            }
+
+            int last = Rules.lastPit(i, stones);
+            if (last < 6 && board[first + last] == 0) {
+                int opposite = board[(first + 12 - last) % 14];
+                if (opposite > 0) {
+                    best = Math.max(best, opposite + 1);
+                }
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,229 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solve every board with up to a given amount of stones in the pits and
+ * write the values as an EndgameTable.
+ * <p>
+ * Boards are solved working back from the fewest stones. A move either
+ * stores stones, leaving a board with fewer stones that is already solved,
+ * or only moves stones further along the mover's own row. The latter can
+ * happen only finitely often, so a board waiting on one with as many stones
+ * solves that one first. Each stone count is split between threads; two
+ * threads solving the same board write the same value.
+ * <p>
+ * Usage: EndgameBuilder [max stones, default 16] [file, default endgame.bin] [threads]
+ */
+public class EndgameBuilder {
+
+    /**
+     * Marks a board not solved yet, below any real value
+     */
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+
+    /**
+     * Boards handed to a thread at a time
+     */
+    private static final int CHUNK = 1 << 14;
+
+    private final int maxSeeds;
+    private final byte[] values;
+
+    /**
+     * Create a builder for a table
+     *
+     * @param maxSeeds the most stones in the pits to solve
+     */
+    EndgameBuilder(int maxSeeds) {
+        if (maxSeeds < 0 || maxSeeds > EndgameTable.MAX_SEEDS) {
+            throw new IllegalArgumentException("stones must be between 0 and " + EndgameTable.MAX_SEEDS);
+        }
+
+        this.maxSeeds = maxSeeds;
+        this.values = new byte[EndgameTable.size(maxSeeds)];
+        Arrays.fill(values, UNSOLVED);
+    }
+
+    /**
+     * Build a table and write it to a file
+     *
+     * @param args the most stones, the file and the thread count
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int maxSeeds = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        Path path = Paths.get(args.length > 1 ? args[1] : "endgame.bin");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        EndgameBuilder builder = new EndgameBuilder(maxSeeds);
+        builder.solve(threads);
+        builder.write(path);
+
+        System.out.printf("%d boards with up to %d stones solved in %.1f s, written to %s%n",
+                builder.values.length, maxSeeds, (System.nanoTime() - start) / 1e9, path);
+    }
+
+    /**
+     * Solve every board, one stone count at a time
+     *
+     * @param threads how many threads to solve with
+     */
+    void solve(int threads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        try {
+            for (int seeds = 0; seeds <= maxSeeds; seeds++) {
+                int count = EndgameTable.count(seeds);
+                AtomicInteger next = new AtomicInteger();
+                List<Future<?>> workers = new ArrayList<>();
+
+                for (int i = 0; i < threads; i++) {
+                    final int level = seeds;
+                    workers.add(pool.submit(() -> {
+                        Solver solver = new Solver();
+                        for (int from = next.getAndAdd(CHUNK); from < count; from = next.getAndAdd(CHUNK)) {
+                            solver.solveRange(level, from, Math.min(count, from + CHUNK));
+                        }
+                    }));
+                }
+
+                // waiting for every thread also makes their values visible to the next level
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("endgame thread failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Write the solved values in the format EndgameTable reads
+     *
+     * @param path the file to create or replace
+     */
+    void write(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(EndgameTable.HEADER);
+        header.putInt(EndgameTable.MAGIC).putInt(maxSeeds).flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(values);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+        }
+    }
+
+    /**
+     * Retrieve the value of a board once solved
+     *
+     * @param board the board with the player to move in pits 0-5
+     * @return the value EndgameTable.probe would give
+     */
+    int valueOf(int[] board) {
+        return values[EndgameTable.index(board, 0, EndgameTable.seeds(board))];
+    }
+
+    /**
+     * The boards one thread solves with, one per level of recursion
+     */
+    private final class Solver {
+
+        /**
+         * Every non-storing move moves a stone at least one pit along its
+         * row, so this bounds the chain of boards with equal stones
+         */
+        private final int[][] plies = new int[5 * maxSeeds + 2][14];
+
+        void solveRange(int seeds, int from, int to) {
+            for (int rank = from; rank < to; rank++) {
+                EndgameTable.board(seeds, rank, plies[0]);
+                solve(0);
+            }
+        }
+
+        /**
+         * Solve the board at a ply, whose stores are empty
+         *
+         * @return the board's value for the player owning pits 0-5
+         */
+        private int solve(int ply) {
+            int[] board = plies[ply];
+            int seeds = EndgameTable.seeds(board);
+            int index = EndgameTable.index(board, 0, seeds);
+
+            if (values[index] != UNSOLVED) {
+                return values[index];
+            }
+
+            int best;
+            if (Rules.isGameOver(board)) {
+                best = rowSum(board, 0) - rowSum(board, 7);
+            } else {
+                best = -Integer.MAX_VALUE;
+                int[] child = plies[ply + 1];
+
+                for (int pit = 0; pit < 6; pit++) {
+                    if (board[pit] == 0) {
+                        continue;
+                    }
+
+                    System.arraycopy(board, 0, child, 0, 14);
+                    boolean again = Rules.sow(pit, child);
+                    int value = child[6];
+                    child[6] = 0;
+
+                    if (Rules.isGameOver(child)) {
+                        value += rowSum(child, 0) - rowSum(child, 7);
+                    } else if (again) {
+                        value += solve(ply + 1);
+                    } else {
+                        swapRows(child);
+                        value -= solve(ply + 1);
+                    }
+
+                    best = Math.max(best, value);
+                }
+            }
+
+            values[index] = (byte) best;
+            return best;
+        }
+    }
+
+    private static int rowSum(int[] board, int first) {
+        int sum = 0;
+        for (int i = first; i < first + 6; i++) {
+            sum += board[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Hand the move to the other player by swapping the rows, stores are empty
+     */
+    private static void swapRows(int[] board) {
+        for (int i = 0; i < 6; i++) {
+            int stones = board[i];
+            board[i] = board[i + 7];
+            board[i + 7] = stones;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact values of every board with few stones left in the pits, read from a
+ * file built by EndgameBuilder.
+ * Stones already stored never move again, so a board's value only depends
+ * on its pits: it is how many more stones the player to move will store
+ * than the other player from now on, with perfect play and extra turns.
+ * <p>
+ * The file is an int 0x4D454754 ("MEGT"), the most stones covered as an
+ * int, then one signed byte per board. Boards are numbered by their stone
+ * count, then by the stones in each pit in the player to move's order, so
+ * a probe is a dozen additions and a single read. The file is memory-mapped
+ * and may be probed from any number of threads.
+ */
+final class EndgameTable {
+
+    static final int MAGIC = 0x4D454754;
+
+    /**
+     * Bytes before the first value
+     */
+    static final int HEADER = 8;
+
+    /**
+     * The most stones a table can cover before it no longer fits in one mapping
+     */
+    static final int MAX_SEEDS = 25;
+
+    /**
+     * Returned by probe for boards the table does not cover
+     */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /**
+     * WAYS[n][k] is the number of ways to spread n stones over k pits
+     */
+    private static final int[][] WAYS = new int[MAX_SEEDS + 1][13];
+
+    /**
+     * OFFSETS[n] is the number of the first board holding n stones
+     */
+    private static final int[] OFFSETS = new int[MAX_SEEDS + 2];
+
+    static {
+        for (int n = 0; n <= MAX_SEEDS; n++) {
+            for (int k = 1; k <= 12; k++) {
+                WAYS[n][k] = k == 1 ? 1 : WAYS[n][k - 1] + (n > 0 ? WAYS[n - 1][k] : 0);
+            }
+            OFFSETS[n + 1] = OFFSETS[n] + WAYS[n][12];
+        }
+    }
+
+    private final ByteBuffer values;
+    private final int maxSeeds;
+
+    private EndgameTable(ByteBuffer values, int maxSeeds) {
+        this.values = values;
+        this.maxSeeds = maxSeeds;
+    }
+
+    /**
+     * Map a table file into memory
+     *
+     * @param path the file written by EndgameBuilder
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    static EndgameTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (values.limit() < HEADER || values.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not an endgame table");
+            }
+
+            int maxSeeds = values.getInt(4);
+            if (maxSeeds < 0 || maxSeeds > MAX_SEEDS || values.limit() != HEADER + size(maxSeeds)) {
+                throw new IOException(path + " is truncated or corrupt");
+            }
+
+            return new EndgameTable(values, maxSeeds);
+        }
+    }
+
+    /**
+     * Open the table named by the mancala.endgame system property
+     *
+     * @return the table, or null if the property is not set
+     * @throws IllegalStateException if the file cannot be opened
+     */
+    static EndgameTable openDefault() {
+        String path = System.getProperty("mancala.endgame");
+        if (path == null) {
+            return null;
+        }
+
+        try {
+            return open(Paths.get(path));
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open endgame table " + path, e);
+        }
+    }
+
+    /**
+     * Count the boards with at most a given amount of stones in the pits
+     *
+     * @param maxSeeds the most stones, at most MAX_SEEDS
+     * @return the number of values a table covering them holds
+     */
+    static int size(int maxSeeds) {
+        return OFFSETS[maxSeeds + 1];
+    }
+
+    /**
+     * Count the stones in the pits of a board
+     *
+     * @param board the board to count
+     * @return the stones in pits 0-5 and 7-12
+     */
+    static int seeds(int[] board) {
+        int seeds = 0;
+        for (int i = 0; i < 6; i++) {
+            seeds += board[i] + board[i + 7];
+        }
+        return seeds;
+    }
+
+    /**
+     * Number a board among the boards with the same amount of stones
+     *
+     * @param board the board to number
+     * @param first the first pit of the player to move, 0 or 7
+     * @param seeds the stones in the pits of the board
+     * @return the board's position in a table file, not counting the header
+     */
+    static int index(int[] board, int first, int seeds) {
+        int index = OFFSETS[seeds];
+        int remaining = seeds;
+
+        // the last pit holds whatever is left, so it adds nothing
+        for (int i = 0; i < 11; i++) {
+            int stones = board[i < 6 ? first + i : (first + i + 1) % 14];
+            index += WAYS[remaining][12 - i] - WAYS[remaining - stones][12 - i];
+            remaining -= stones;
+        }
+
+        return index;
+    }
+
+    /**
+     * Lay out the board with a given number, the reverse of index()
+     *
+     * @param seeds the stones in the pits of the board
+     * @param rank  the board's number among boards with as many stones
+     * @param board receives the pits, with the player to move in 0-5 and empty stores
+     */
+    static void board(int seeds, int rank, int[] board) {
+        int remaining = seeds;
+
+        for (int i = 0; i < 11; i++) {
+            int stones = 0;
+            while (rank >= WAYS[remaining - stones][11 - i]) {
+                rank -= WAYS[remaining - stones][11 - i];
+                stones++;
+            }
+
+            board[i < 6 ? i : i + 1] = stones;
+            remaining -= stones;
+        }
+
+        board[12] = remaining;
+        board[6] = board[13] = 0;
+    }
+
+    /**
+     * Count the boards holding exactly a given amount of stones
+     *
+     * @param seeds the stones in the pits
+     * @return the number of boards
+     */
+    static int count(int seeds) {
+        return WAYS[seeds][12];
+    }
+
+    /**
+     * Look up the exact value of a board
+     *
+     * @param board the board to look up
+     * @param first the first pit of the player to move, 0 or 7
+     * @return how many more stones the player to move will store than the
+     * other player from now on, or UNKNOWN if the board has too many stones
+     */
+    int probe(int[] board, int first) {
+        int seeds = seeds(board);
+        return seeds > maxSeeds ? UNKNOWN : values.get(HEADER + index(board, first, seeds));
+    }
+
+    /**
+     * Retrieve the most stones this table covers
+     *
+     * @return boards with at most this many stones in the pits can be probed
+     */
+    int getMaxSeeds() {
+        return maxSeeds;
+    }
+}
@@ -0,0 +1,162 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Scores boards at the leaves of the search.
+ * Scores are for the player owning pits 0-5, higher being better for them.
+ * An evaluator is shared between search threads, so it must not keep
+ * any state of its own.
+ */
+interface Evaluator {
+
+    /**
+     * Score a board from scratch
+     *
+     * @param board the board to score
+     * @return the score for the player owning pits 0-5
+     */
+    int evaluate(int[] board);
+
+    /**
+     * Score a board from its parent's score after one sowing.
+     * Only called if isIncremental() is true.
+     *
+     * @param score  the score of the board before the move
+     * @param before the board before the move
+     * @param after  the board after sowing the pit with Rules.sow
+     * @param pit    the pit sown
+     * @return the same value as evaluate(after)
+     */
+    default int update(int score, int[] before, int[] after, int pit) {
+        return evaluate(after);
+    }
+
+    /**
+     * Check whether update() is cheaper than evaluate(). The search then
+     * keeps a score for every ply instead of scoring only the leaves.
+     *
+     * @return true if update() does not rescan the board
+     */
+    default boolean isIncremental() {
+        return false;
+    }
+
+    /**
+     * Count only the stones in the stores
+     *
+     * @return an incremental evaluator
+     */
+    static Evaluator storeDifference() {
+        return new LinearEvaluator(0, 1);
+    }
+
+    /**
+     * Count every stone on a player's side, stored ones counting more.
+     * With a store weight of 2 this is the score the AI has always used.
+     *
+     * @param storeWeight how many times a stored stone counts
+     * @return an incremental evaluator
+     */
+    static Evaluator seedsOnSide(int storeWeight) {
+        return new LinearEvaluator(1, storeWeight);
+    }
+
+    /**
+     * Count the stones on each side and the pits each player can sow
+     *
+     * @param storeWeight how many times a stored stone counts
+     * @return an evaluator
+     */
+    static Evaluator mobility(int storeWeight) {
+        return new MobilityEvaluator(storeWeight);
+    }
+
+    /**
+     * Count the stones on each side and the best capture each player has
+     *
+     * @param storeWeight how many times a stored stone counts
+     * @return an evaluator
+     */
+    static Evaluator captureThreat(int storeWeight) {
+        return new CaptureThreatEvaluator(storeWeight);
+    }
+
+    /**
+     * Read the weights of each pit and store from a file written by WeightTuner
+     *
+     * @param path the weight file
+     * @return an incremental evaluator
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if it does not hold six pit weights and a store weight
+     */
+    static Evaluator load(Path path) throws IOException {
+        Properties weights = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            weights.load(reader);
+        }
+
+        String[] pits = weights.getProperty("pits", "").trim().split("\\s+");
+        String store = weights.getProperty("store");
+        if (pits.length != 6 || store == null) {
+            throw new IllegalArgumentException(path + " does not hold six pit weights and a store weight");
+        }
+
+        int[] own = new int[7];
+        for (int i = 0; i < 6; i++) {
+            own[i] = Integer.parseInt(pits[i]);
+        }
+        own[6] = Integer.parseInt(store.trim());
+        return new LinearEvaluator(own);
+    }
+
+    /**
+     * Load the weights named by the mancala.weights property
+     *
+     * @return the evaluator in that file, or seedsOnSide(2) if the property is not set
+     * @throws IllegalStateException if the file cannot be read
+     */
+    static Evaluator fromProperties() {
+        String path = System.getProperty("mancala.weights");
+        if (path == null) {
+            return seedsOnSide(2);
+        }
+
+        try {
+            return load(Paths.get(path));
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read weights " + path, e);
+        }
+    }
+
+    /**
+     * Look an evaluator up by name
+     *
+     * @param name        store, side, mobility, threat, or tuned for fromProperties()
+     * @param storeWeight how many times a stored stone counts, where used
+     * @return the evaluator
+     * @throws IllegalArgumentException if the name is not known
+     */
+    static Evaluator named(String name, int storeWeight) {
+        switch (name) {
+            case "store":
+                return storeDifference();
+            case "side":
+                return seedsOnSide(storeWeight);
+            case "mobility":
+                return mobility(storeWeight);
+            case "threat":
+                return captureThreat(storeWeight);
+            case "tuned":
+                return fromProperties();
+            default:
+                throw new IllegalArgumentException("unknown evaluator " + name);
+        }
+    }
+}
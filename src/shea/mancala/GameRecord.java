@@ -0,0 +1,150 @@
+package shea.mancala;
+
+import java.util.Arrays;
+
+/**
+ * A finished or abandoned game as stored by GameRecordWriter: where it
+ * started, who played it, the pits played and how it ended.
+ * Player 1 moves first from the starting layout, and each move is a pit
+ * from 0 to 5 on the board laid out for the player making it, as
+ * MancalaEngine.applyMove takes it.
+ */
+final class GameRecord {
+
+    /**
+     * The game's number within its file, for example the self-play game number
+     */
+    final long number;
+
+    /**
+     * The board before the first move, laid out for player 1
+     */
+    private final int[] start;
+
+    /**
+     * How each player picked its moves, as AiSettings text, or empty for a person
+     */
+    final String playerOne, playerTwo;
+
+    /**
+     * -1 if the game did not end, 0 for a tie, otherwise the winning player
+     */
+    final int winner;
+
+    /**
+     * The stones in each player's store at the end
+     */
+    final int storeOne, storeTwo;
+
+    private final byte[] moves;
+
+    /**
+     * How long each move took to choose in microseconds, 0 for random or
+     * book moves, or null if the times were not recorded
+     */
+    private final int[] micros;
+
+    GameRecord(long number, int[] start, String playerOne, String playerTwo,
+               int winner, int storeOne, int storeTwo, byte[] moves) {
+        this(number, start, playerOne, playerTwo, winner, storeOne, storeTwo, moves, null);
+    }
+
+    GameRecord(long number, int[] start, String playerOne, String playerTwo,
+               int winner, int storeOne, int storeTwo, byte[] moves, int[] micros) {
+        if (start.length != 14) {
+            throw new IllegalArgumentException("a board has 14 pits");
+        }
+        if (micros != null && micros.length != moves.length) {
+            throw new IllegalArgumentException("a time is needed for every move");
+        }
+
+        this.number = number;
+        this.start = start.clone();
+        this.playerOne = playerOne;
+        this.playerTwo = playerTwo;
+        this.winner = winner;
+        this.storeOne = storeOne;
+        this.storeTwo = storeTwo;
+        this.moves = moves.clone();
+        this.micros = micros != null ? micros.clone() : null;
+    }
+
+    /**
+     * Record a game from the engine that played it
+     *
+     * @param number    the game's number
+     * @param start     the board before the first move, laid out for player 1
+     * @param playerOne player 1's settings, or empty for a person
+     * @param playerTwo player 2's settings, or empty for a person
+     * @param engine    the engine after the last move
+     * @param moves     the pits played
+     * @param micros    how long each move took in microseconds, or null if not timed
+     * @param count     how many of the pits were played
+     * @return the record
+     */
+    static GameRecord of(long number, int[] start, String playerOne, String playerTwo,
+                         MancalaEngine engine, byte[] moves, int[] micros, int count) {
+        return new GameRecord(number, start, playerOne, playerTwo, engine.getWinner(),
+                engine.getScore(1), engine.getScore(2), Arrays.copyOf(moves, count),
+                micros != null ? Arrays.copyOf(micros, count) : null);
+    }
+
+    /**
+     * Retrieve the board before the first move
+     *
+     * @return a copy of the pits, laid out for player 1
+     */
+    int[] getStart() {
+        return start.clone();
+    }
+
+    boolean isStandardStart() {
+        return Arrays.equals(start, MancalaEngine.START);
+    }
+
+    int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Retrieve one of the moves
+     *
+     * @param ply the index of the move, from 0
+     * @return the pit played, 0-5
+     */
+    int getMove(int ply) {
+        return moves[ply];
+    }
+
+    boolean hasTimes() {
+        return micros != null;
+    }
+
+    /**
+     * Retrieve how long one of the moves took
+     *
+     * @param ply the index of the move, from 0
+     * @return the time in microseconds, 0 for a move not searched
+     * @throws IllegalStateException if the game has no times
+     */
+    int getMicros(int ply) {
+        if (micros == null) {
+            throw new IllegalStateException("game " + number + " has no move times");
+        }
+        return micros[ply];
+    }
+
+    /**
+     * Play the game through again
+     *
+     * @return an engine with every move applied
+     * @throws IllegalArgumentException if a move is not legal
+     */
+    MancalaEngine replay() {
+        MancalaEngine engine = new MancalaEngine(start);
+        for (byte move : moves) {
+            engine.applyMove(move);
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,206 @@
+package shea.mancala;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams GameRecords back from a channel written by GameRecordWriter,
+ * holding one buffer's worth of the file at a time. Not thread safe.
+ * A record that is truncated or does not decode is reported as an
+ * IOException naming the file and the record's offset in it.
+ */
+final class GameRecordReader implements Closeable {
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 17);
+    private final int version;
+    private boolean ended;
+
+    /**
+     * The file's name for error messages
+     */
+    private final String name;
+
+    /**
+     * The offset in the file of the first byte in the buffer
+     */
+    private long bufferOffset;
+
+    /**
+     * Start reading a file from a channel
+     *
+     * @param channel where to read, positioned at the start of the file
+     * @param name    names the file in error messages
+     * @throws IOException if the channel does not hold game records
+     */
+    GameRecordReader(ReadableByteChannel channel, String name) throws IOException {
+        this.channel = channel;
+        this.name = name;
+        buffer.flip();
+
+        if (!fill(GameRecordWriter.HEADER) || buffer.getInt() != GameRecordWriter.MAGIC) {
+            throw new IOException(name + " is not a game record file");
+        }
+
+        version = buffer.get();
+        if (version < 1 || version > GameRecordWriter.VERSION) {
+            throw new IOException(name + " has unsupported game record version " + version);
+        }
+    }
+
+    /**
+     * Open a file
+     *
+     * @param path the file
+     * @return a reader for the file
+     * @throws IOException if the file cannot be opened or does not hold game records
+     */
+    static GameRecordReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new GameRecordReader(channel, path.toString());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next game
+     *
+     * @return the game, or null at the end of the file
+     * @throws IOException if the channel fails or the file ends inside a record
+     */
+    GameRecord next() throws IOException {
+        long offset = bufferOffset + buffer.position();
+        if (!fill(2)) {
+            if (buffer.hasRemaining()) {
+                throw corrupt(offset, "truncated", null);
+            }
+            return null;
+        }
+
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (!fill(length)) {
+            throw corrupt(offset, "truncated", null);
+        }
+
+        // reading past the record's length underflows instead of running into the next record
+        int end = buffer.position() + length;
+        int limit = buffer.limit();
+        buffer.limit(end);
+
+        try {
+            return read();
+        } catch (RuntimeException e) {
+            throw corrupt(offset, "corrupt", e);
+        } finally {
+            buffer.limit(limit).position(end);
+        }
+    }
+
+    /**
+     * Decode a record, the buffer's limit at its end
+     */
+    private GameRecord read() {
+        long number = buffer.getLong();
+        int flags = buffer.get();
+
+        int[] start = MancalaEngine.START;
+        if ((flags & GameRecordWriter.CUSTOM_START) != 0) {
+            start = new int[14];
+            for (int i = 0; i < 14; i++) {
+                start[i] = Byte.toUnsignedInt(buffer.get());
+            }
+        }
+
+        String playerOne = settings();
+        String playerTwo = settings();
+        int winner = buffer.get();
+        int storeOne = Byte.toUnsignedInt(buffer.get());
+        int storeTwo = Byte.toUnsignedInt(buffer.get());
+
+        byte[] moves = new byte[Short.toUnsignedInt(buffer.getShort())];
+        int bits = 0, pending = 0;
+        for (int ply = 0; ply < moves.length; ply++) {
+            if (pending < 3) {
+                bits |= Byte.toUnsignedInt(buffer.get()) << pending;
+                pending += 8;
+            }
+            moves[ply] = (byte) (bits & 7);
+            bits >>>= 3;
+            pending -= 3;
+        }
+
+        int[] micros = null;
+        if ((flags & GameRecordWriter.TIMES) != 0 && version >= 2) {
+            micros = new int[moves.length];
+            for (int ply = 0; ply < moves.length; ply++) {
+                micros[ply] = varint();
+            }
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("game " + number + " ends " + buffer.remaining() + " bytes early");
+        }
+
+        return new GameRecord(number, start, playerOne, playerTwo, winner, storeOne, storeTwo, moves, micros);
+    }
+
+    private IOException corrupt(long offset, String problem, RuntimeException cause) {
+        return new IOException(problem + " game record at offset " + offset + " of " + name
+                + (cause != null ? ": " + cause : ""), cause);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String settings() {
+        byte[] bytes = new byte[Byte.toUnsignedInt(buffer.get())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int varint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IllegalStateException("varint longer than an int");
+            }
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Read from the channel until some bytes are buffered
+     *
+     * @param bytes how many bytes are needed
+     * @return false if the file ended first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+
+        bufferOffset += buffer.position();
+        buffer.compact();
+        while (!ended && buffer.position() < bytes) {
+            ended = channel.read(buffer) < 0;
+        }
+        buffer.flip();
+
+        return buffer.remaining() >= bytes;
+    }
+}
@@ -0,0 +1,196 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read files written by GameRecordWriter, one game at a time.
+ * <p>
+ * Usage: GameRecordTool stats FILE | check FILE | show FILE NUMBER
+ * <pre>
+ * stats   results for each pair of players, first player's settings first,
+ *         and each player's mean time per searched move where recorded
+ * check   replay every game and report any whose result does not match
+ * show    replay one game, printing the board and time taken after every move
+ * </pre>
+ */
+public class GameRecordTool {
+
+    private static final String USAGE = "usage: GameRecordTool stats FILE | check FILE | show FILE NUMBER";
+
+    /**
+     * Results for one pair of players
+     */
+    private static final class Tally {
+        long games, oneWins, twoWins, draws, moves;
+
+        /**
+         * Microseconds and timed moves of player 1 and player 2, index 0 and 1
+         */
+        final long[] micros = new long[2], timed = new long[2];
+
+        /**
+         * Add up each player's move times, replaying the game to see who made each move
+         */
+        void addTimes(GameRecord game) {
+            int[] board = game.getStart();
+            int player = 0;
+
+            for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                if (game.getMicros(ply) > 0) {
+                    micros[player] += game.getMicros(ply);
+                    timed[player]++;
+                }
+                if (!Rules.sow(game.getMove(ply), board)) {
+                    Geometry.STANDARD.swapSides(board);
+                    player = 1 - player;
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a command
+     *
+     * @param args the command and its arguments
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || "show".equals(args[0]) && (args.length < 3 || !args[2].matches("-?\\d+"))) {
+            usage();
+        }
+
+        Path path = Paths.get(args[1]);
+        switch (args[0]) {
+            case "stats":
+                stats(path);
+                break;
+            case "check":
+                check(path);
+                break;
+            case "show":
+                show(path, Long.parseLong(args[2]));
+                break;
+            default:
+                usage();
+        }
+    }
+
+    /**
+     * Print how to run the tool and exit with status 1
+     */
+    private static void usage() {
+        System.out.println(USAGE);
+        System.exit(1);
+    }
+
+    private static void stats(Path path) throws IOException {
+        Map<String, Tally> tallies = new LinkedHashMap<>();
+        long games = 0;
+
+        try (GameRecordReader reader = GameRecordReader.open(path)) {
+            for (GameRecord game = reader.next(); game != null; game = reader.next()) {
+                Tally tally = tallies.computeIfAbsent(name(game.playerOne) + " vs " + name(game.playerTwo),
+                        players -> new Tally());
+                tally.games++;
+                tally.moves += game.getMoveCount();
+                if (game.hasTimes()) {
+                    tally.addTimes(game);
+                }
+                if (game.winner == 0) {
+                    tally.draws++;
+                } else if (game.winner == 1) {
+                    tally.oneWins++;
+                } else if (game.winner == 2) {
+                    tally.twoWins++;
+                }
+                games++;
+            }
+        }
+
+        System.out.printf("%d games in %d bytes, %.1f bytes per game%n", games, Files.size(path),
+                games == 0 ? 0.0 : (double) Files.size(path) / games);
+        for (Map.Entry<String, Tally> entry : tallies.entrySet()) {
+            Tally tally = entry.getValue();
+            System.out.printf("%s: %d games, first %d, second %d, draws %d, %.1f moves per game%s%n",
+                    entry.getKey(), tally.games, tally.oneWins, tally.twoWins, tally.draws,
+                    (double) tally.moves / tally.games, meanTimes(tally));
+        }
+    }
+
+    private static void check(Path path) throws IOException {
+        long games = 0, bad = 0;
+
+        try (GameRecordReader reader = GameRecordReader.open(path)) {
+            for (GameRecord game = reader.next(); game != null; game = reader.next()) {
+                games++;
+                String problem;
+
+                try {
+                    MancalaEngine engine = game.replay();
+                    problem = engine.getWinner() != game.winner
+                            || engine.getScore(1) != game.storeOne || engine.getScore(2) != game.storeTwo
+                            ? "ends " + engine.getScore(1) + "-" + engine.getScore(2)
+                            + " but was recorded as " + game.storeOne + "-" + game.storeTwo
+                            : null;
+                } catch (IllegalArgumentException e) {
+                    problem = e.getMessage();
+                }
+
+                if (problem != null) {
+                    bad++;
+                    System.out.printf("game %d: %s%n", game.number, problem);
+                }
+            }
+        }
+
+        System.out.printf("%d games checked, %d bad%n", games, bad);
+    }
+
+    private static void show(Path path, long number) throws IOException {
+        try (GameRecordReader reader = GameRecordReader.open(path)) {
+            for (GameRecord game = reader.next(); game != null; game = reader.next()) {
+                if (game.number != number) {
+                    continue;
+                }
+
+                System.out.printf("Game %d: %s vs %s%n", number, name(game.playerOne), name(game.playerTwo));
+                MancalaEngine engine = new MancalaEngine(game.getStart());
+                engine.printTheBoard();
+
+                for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                    System.out.println("Player " + engine.getCurrentPlayer() + " sows pit " + game.getMove(ply)
+                            + (game.hasTimes() ? " (" + game.getMicros(ply) + " us)" : ""));
+                    try {
+                        engine.applyMove(game.getMove(ply));
+                    } catch (IllegalArgumentException e) {
+                        System.out.printf("game %d: move %d is bad: %s%n", number, ply, e.getMessage());
+                        return;
+                    }
+                    engine.printTheBoard();
+                }
+
+                System.out.println(game.winner == 0 ? "Tie" : "Player " + game.winner + " wins");
+                return;
+            }
+        }
+
+        System.out.println("no game " + number + " in " + path);
+    }
+
+    private static String meanTimes(Tally tally) {
+        if (tally.timed[0] + tally.timed[1] == 0) {
+            return "";
+        }
+        return String.format(", first %.0f us per move, second %.0f us per move",
+                tally.timed[0] == 0 ? 0.0 : (double) tally.micros[0] / tally.timed[0],
+                tally.timed[1] == 0 ? 0.0 : (double) tally.micros[1] / tally.timed[1]);
+    }
+
+    private static String name(String settings) {
+        return settings.isEmpty() ? "person" : settings;
+    }
+}
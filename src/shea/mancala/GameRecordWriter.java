@@ -0,0 +1,193 @@
+package shea.mancala;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams GameRecords to a channel, buffering whole records so a file of
+ * any number of games is written in constant memory. Not thread safe.
+ * <p>
+ * The file is an int 0x4D47524D ("MGRM") and a version byte, followed by
+ * the records. Each record is its length in bytes after the length field
+ * (unsigned short), then:
+ * <pre>
+ * number              long
+ * flags               byte, 1 if a starting layout follows, 2 if move times follow
+ * start               14 bytes, the board for player 1, only if flagged
+ * player one, two     a length byte and UTF-8 text each
+ * winner              byte, -1 if the game did not end
+ * stores              a byte for each player
+ * move count          unsigned short
+ * moves               3 bits each, packed from the low bit of each byte up
+ * times               only if flagged, the microseconds each move took as
+ *                     varints, 7 bits a byte from the low bits up, the high
+ *                     bit set on every byte but the last
+ * </pre>
+ * Version 1 files have no times and are still read.
+ */
+final class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x4D47524D;
+    static final int VERSION = 2;
+
+    /**
+     * Bytes before the first record
+     */
+    static final int HEADER = 5;
+
+    /**
+     * The most bytes a record may take after its length field
+     */
+    static final int MAX_RECORD = 0xFFFF;
+
+    static final int CUSTOM_START = 1, TIMES = 2;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 17);
+    private long written;
+
+    /**
+     * Start a file on a channel
+     *
+     * @param channel where to write, positioned at the start of the file
+     */
+    GameRecordWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer.putInt(MAGIC).put((byte) VERSION);
+    }
+
+    /**
+     * Create or replace a file
+     *
+     * @param path the file
+     * @return a writer for the file
+     * @throws IOException if the file cannot be opened
+     */
+    static GameRecordWriter create(Path path) throws IOException {
+        return new GameRecordWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Add a game
+     *
+     * @param game the game
+     * @throws IOException if the buffer cannot be flushed
+     */
+    void write(GameRecord game) throws IOException {
+        byte[] one = settings(game.playerOne);
+        byte[] two = settings(game.playerTwo);
+        boolean custom = !game.isStandardStart();
+        int moves = game.getMoveCount();
+        int length = 8 + 1 + (custom ? 14 : 0) + 1 + one.length + 1 + two.length + 3 + 2 + (moves * 3 + 7) / 8;
+        for (int ply = 0; game.hasTimes() && ply < moves; ply++) {
+            length += varintSize(game.getMicros(ply));
+        }
+
+        if (length > MAX_RECORD) {
+            throw new IllegalArgumentException("game " + game.number + " is too long to record");
+        }
+        if (buffer.remaining() < 2 + length) {
+            flush();
+        }
+
+        buffer.putShort((short) length);
+        buffer.putLong(game.number);
+        buffer.put((byte) ((custom ? CUSTOM_START : 0) | (game.hasTimes() ? TIMES : 0)));
+        if (custom) {
+            for (int stones : game.getStart()) {
+                buffer.put((byte) stones);
+            }
+        }
+        buffer.put((byte) one.length).put(one);
+        buffer.put((byte) two.length).put(two);
+        buffer.put((byte) game.winner).put((byte) game.storeOne).put((byte) game.storeTwo);
+        buffer.putShort((short) moves);
+
+        // 3 bits per move, carried across byte boundaries
+        int bits = 0, pending = 0;
+        for (int ply = 0; ply < moves; ply++) {
+            bits |= game.getMove(ply) << pending;
+            pending += 3;
+            if (pending >= 8) {
+                buffer.put((byte) bits);
+                bits >>>= 8;
+                pending -= 8;
+            }
+        }
+        if (pending > 0) {
+            buffer.put((byte) bits);
+        }
+
+        for (int ply = 0; game.hasTimes() && ply < moves; ply++) {
+            putVarint(game.getMicros(ply));
+        }
+
+        written++;
+    }
+
+    /**
+     * Retrieve how many games have been added
+     *
+     * @return the game count
+     */
+    long getWritten() {
+        return written;
+    }
+
+    /**
+     * Write out the buffered games
+     *
+     * @throws IOException if the channel fails
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write out the buffered games and close the channel
+     *
+     * @throws IOException if the channel fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static byte[] settings(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("settings too long to record: " + text);
+        }
+        return bytes;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int varintSize(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("a move cannot take " + value + " microseconds");
+        }
+        return value < 1 << 7 ? 1 : value < 1 << 14 ? 2 : value < 1 << 21 ? 3 : value < 1 << 28 ? 4 : 5;
+    }
+}
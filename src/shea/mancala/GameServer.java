@@ -0,0 +1,199 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts human-vs-AI games for many clients over a line-based TCP protocol.
+ * Each connection gets its own thread and MancalaEngine. AI moves are
+ * searched on a fixed pool of threads, which caps how many searches run at
+ * once; sessions wait in line for a free thread when all are busy.
+ * <p>
+ * The client plays first as player 1 unless it asks the AI to go first.
+ * Boards are sent from the client's side: pits 0-5 and store 6 are the
+ * client's. Commands:
+ * <pre>
+ * MOVE pit      sow one of your pits, 0-5
+ * NEW [second]  start a new game, letting the AI move first if asked
+ * BOARD         send the board again
+ * STATS         send the AI move latency percentiles
+ * QUIT          end the session
+ * </pre>
+ * The server greets with "HELLO mancala 1" and answers with lines of:
+ * <pre>
+ * BOARD player p0 ... p13    the board and the player to move
+ * AI pit millis              a move by the AI and how long it waited and searched
+ * OVER winner store1 store2  the game has ended, winner 0 for a tie
+ * STATS summary              from STATS
+ * ERR message                the command was not understood or not legal
+ * BYE                        from QUIT
+ * </pre>
+ * Usage: GameServer [--port N] [--searches N] [--millis N] [--max-sessions N] [--report SECONDS]
+ */
+public class GameServer {
+
+    private int port = 4040;
+    private int searches = Runtime.getRuntime().availableProcessors();
+    private long millis = 100;
+    private int maxSessions = 1000;
+    private long reportSeconds = 60;
+
+    /**
+     * Searches AI moves; a session has at most one search waiting, so the
+     * queue is as long as the session limit and never turns one away
+     */
+    private ThreadPoolExecutor aiPool;
+
+    private final OpeningBook book = OpeningBook.openDefault();
+    private final EndgameTable endgame = EndgameTable.openDefault();
+    private final Evaluator evaluator = Evaluator.fromProperties();
+
+    /**
+     * One search per pool thread, each with its own table
+     */
+    private final ThreadLocal<Search> aiSearch = ThreadLocal.withInitial(() -> {
+        Search search = new Search();
+        search.setEndgameTable(endgame);
+        search.setEvaluator(evaluator);
+        return search;
+    });
+
+    /**
+     * Time from asking for an AI move to having it, waiting included
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Start the server
+     *
+     * @param args see the class description
+     */
+    public static void main(String[] args) throws IOException {
+        GameServer server = new GameServer();
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i++]) {
+                case "--port":
+                    server.port = Integer.parseInt(value);
+                    break;
+                case "--searches":
+                    server.searches = Integer.parseInt(value);
+                    break;
+                case "--millis":
+                    server.millis = Long.parseLong(value);
+                    break;
+                case "--max-sessions":
+                    server.maxSessions = Integer.parseInt(value);
+                    break;
+                case "--report":
+                    server.reportSeconds = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i - 1]);
+            }
+        }
+
+        server.run();
+    }
+
+    /**
+     * Accept clients until the process is stopped
+     */
+    private void run() throws IOException {
+        aiPool = new ThreadPoolExecutor(searches, searches, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxSessions), daemonThreads("mancala-search-"));
+        ExecutorService sessions = Executors.newCachedThreadPool(daemonThreads("mancala-session-"));
+        Semaphore sessionSlots = new Semaphore(maxSessions);
+
+        Thread reporter = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(reportSeconds * 1000);
+                    System.out.printf("%d sessions, %s%n", maxSessions - sessionSlots.availablePermits(), latency);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "mancala-report");
+        reporter.setDaemon(true);
+        reporter.start();
+
+        try (ServerSocket listener = new ServerSocket()) {
+            listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+            System.out.printf("Listening on %s with %d search threads, %d ms per AI move%n",
+                    listener.getLocalSocketAddress(), searches, millis);
+
+            while (true) {
+                Socket socket = listener.accept();
+
+                if (!sessionSlots.tryAcquire()) {
+                    GameSession.refuse(socket, "server full");
+                    continue;
+                }
+
+                sessions.execute(() -> {
+                    try {
+                        new GameSession(socket, this).run();
+                    } finally {
+                        sessionSlots.release();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Search for the AI's move on the pool, waiting for a thread if all are busy
+     *
+     * @param board the board with the AI's pits in 0-5
+     * @return the move found
+     * @throws InterruptedException if the session's thread is interrupted while waiting
+     */
+    SearchStats findAiMove(int[] board) throws InterruptedException {
+        long started = System.nanoTime();
+
+        Future<SearchStats> result = aiPool.submit(() -> {
+            SearchStats stats = book != null ? book.lookup(board) : null;
+            return stats != null ? stats : aiSearch.get().searchInTime(board, millis);
+        });
+
+        try {
+            SearchStats stats = result.get();
+            latency.record(System.nanoTime() - started);
+            SearchMonitor.INSTANCE.record(stats);
+            return stats;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("AI search failed", e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        }
+    }
+
+    LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,163 @@
+package shea.mancala;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * One client's connection to a GameServer, playing one game at a time.
+ * Runs on its own thread, blocking on the socket and on the AI's moves.
+ */
+final class GameSession implements Runnable {
+
+    private final Socket socket;
+    private final GameServer server;
+    private MancalaEngine engine = new MancalaEngine();
+
+    /**
+     * The player the client plays as, 1 unless the AI was asked to go first
+     */
+    private int client = 1;
+
+    private PrintWriter out;
+
+    GameSession(Socket socket, GameServer server) {
+        this.socket = socket;
+        this.server = server;
+    }
+
+    /**
+     * Tell a client it cannot be served and hang up
+     *
+     * @param socket the client's connection
+     * @param reason why it is refused
+     */
+    static void refuse(Socket socket, String reason) {
+        try (Socket closing = socket; Writer writer = new OutputStreamWriter(
+                closing.getOutputStream(), StandardCharsets.US_ASCII)) {
+            writer.write("ERR " + reason + "\n");
+        } catch (IOException e) {
+            // the client is gone already
+        }
+    }
+
+    @Override
+    public void run() {
+        try (Socket closing = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     closing.getInputStream(), StandardCharsets.US_ASCII))) {
+            out = new PrintWriter(new OutputStreamWriter(closing.getOutputStream(), StandardCharsets.US_ASCII));
+            socket.setTcpNoDelay(true);
+
+            send("HELLO mancala 1");
+            sendBoard();
+
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (!handle(line.trim().split("\\s+"))) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // the client disconnected
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Act on one command
+     *
+     * @return false once the session should end
+     */
+    private boolean handle(String[] command) throws InterruptedException {
+        switch (command[0].toUpperCase()) {
+            case "MOVE":
+                move(command);
+                break;
+            case "NEW":
+                engine = new MancalaEngine();
+                client = command.length > 1 && command[1].equalsIgnoreCase("second") ? 2 : 1;
+                playAi();
+                break;
+            case "BOARD":
+                sendBoard();
+                break;
+            case "STATS":
+                send("STATS " + server.getLatency());
+                break;
+            case "QUIT":
+                send("BYE");
+                return false;
+            default:
+                send("ERR unknown command " + command[0]);
+        }
+        return true;
+    }
+
+    private void move(String[] command) throws InterruptedException {
+        int pit;
+        try {
+            pit = Integer.parseInt(command[1]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            send("ERR expected MOVE followed by a pit from 0 to 5");
+            return;
+        }
+
+        if (engine.isGameOver() || engine.getCurrentPlayer() != client || !engine.isLegalMove(pit)) {
+            send("ERR pit " + pit + " cannot be played");
+            return;
+        }
+
+        engine.applyMove(pit);
+        playAi();
+    }
+
+    /**
+     * Let the AI move for as long as it is its turn, then send the board
+     */
+    private void playAi() throws InterruptedException {
+        while (!engine.isGameOver() && engine.getCurrentPlayer() != client) {
+            aiMove();
+        }
+
+        sendBoard();
+    }
+
+    private void aiMove() throws InterruptedException {
+        long started = System.nanoTime();
+        SearchStats stats = server.findAiMove(engine.getPits());
+        engine.applyMove(stats.move);
+        send(String.format(Locale.ROOT, "AI %d %.1f", stats.move, (System.nanoTime() - started) / 1e6));
+    }
+
+    /**
+     * Send the board from the client's side, and the result once the game is over
+     */
+    private void sendBoard() {
+        int[] pits = engine.getPits();
+        StringBuilder line = new StringBuilder("BOARD ").append(engine.getCurrentPlayer());
+
+        for (int i = 0; i < 14; i++) {
+            // the engine lays the board out for the player to move
+            int pit = engine.getCurrentPlayer() == client ? i : (i + 7) % 14;
+            line.append(' ').append(pits[pit]);
+        }
+        send(line.toString());
+
+        if (engine.isGameOver()) {
+            send("OVER " + engine.getWinner() + " " + engine.getScore(1) + " " + engine.getScore(2));
+        }
+    }
+
+    private void send(String line) {
+        out.print(line);
+        out.print('\n');
+        out.flush();
+    }
+}
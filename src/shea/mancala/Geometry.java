@@ -0,0 +1,270 @@
+package shea.mancala;
+
+/**
+ * The size of a board: how many pits each player has and how many stones
+ * each pit starts with. Boards are laid out as in Rules, generalised: pits
+ * 0 to pits-1 and store pits belong to the player moving, the next pits
+ * and the last store to the other player. Sowing passes over pits 1 to
+ * 2 * pits only, skipping pit 0 and the other player's store, as it does
+ * on the standard board.
+ * <p>
+ * Every geometry keeps tables of where the last stone lands and of
+ * opposite pits. The 4, 6 and 8 pit boards with 3 to 6 stones are built
+ * once when the class loads and shared; other sizes are built on request.
+ * Six pit boards sow through Rules, so the standard board costs the same
+ * as before, and the alpha-beta AI plays them whatever the stones per pit.
+ * It is written for Rules' fourteen entry board, so on other pit counts
+ * the AI searches by Monte Carlo tree search instead.
+ */
+final class Geometry {
+
+    static final int MIN_PITS = 1, MAX_PITS = 16;
+
+    /**
+     * The sizes built when the class loads, COMMON[pits][seeds] or null
+     */
+    private static final Geometry[][] COMMON = new Geometry[MAX_PITS + 1][];
+
+    static {
+        for (int pits = 4; pits <= 8; pits += 2) {
+            COMMON[pits] = new Geometry[7];
+            for (int seeds = 3; seeds <= 6; seeds++) {
+                COMMON[pits][seeds] = new Geometry(pits, seeds);
+            }
+        }
+    }
+
+    /**
+     * Six pits a side with four stones each, the board Rules hard-codes
+     */
+    static final Geometry STANDARD = of(6, 4);
+
+    final int pits, seeds;
+
+    /**
+     * The mover's store, the other player's store and the number of entries in a board
+     */
+    final int store, otherStore, size;
+
+    /**
+     * Pits passed over in one lap of sowing
+     */
+    final int lap;
+
+    /**
+     * lastPit[pit][rest] is the pit the last stone sown from a pit lands in, rest being the stones % lap
+     */
+    private final byte[][] lastPit;
+
+    /**
+     * opposite[pit] is the pit across from one of the mover's pits
+     */
+    private final byte[] opposite;
+
+    private final int[] start;
+
+    private Geometry(int pits, int seeds) {
+        this.pits = pits;
+        this.seeds = seeds;
+        this.store = pits;
+        this.otherStore = 2 * pits + 1;
+        this.size = 2 * pits + 2;
+        this.lap = 2 * pits;
+
+        lastPit = new byte[otherStore][lap];
+        for (int pit = 0; pit < otherStore; pit++) {
+            for (int rest = 0; rest < lap; rest++) {
+                lastPit[pit][rest] = (byte) ((pit + rest + lap - 1) % lap + 1);
+            }
+        }
+
+        opposite = new byte[pits];
+        for (int pit = 0; pit < pits; pit++) {
+            opposite[pit] = (byte) (2 * pits - pit);
+        }
+
+        start = new int[size];
+        for (int pit = 0; pit < pits; pit++) {
+            start[pit] = seeds;
+            start[pit + store + 1] = seeds;
+        }
+    }
+
+    /**
+     * Retrieve a geometry
+     *
+     * @param pits  pits per player
+     * @param seeds stones per pit at the start
+     * @return the shared instance for a common size, otherwise a new one
+     * @throws IllegalArgumentException if the board would not fit the tables
+     */
+    static Geometry of(int pits, int seeds) {
+        if (pits < MIN_PITS || pits > MAX_PITS || seeds < 1 || seeds > 32) {
+            throw new IllegalArgumentException("cannot play " + pits + " pits of " + seeds + " stones");
+        }
+
+        Geometry[] common = COMMON[pits];
+        return common != null && seeds < common.length && common[seeds] != null
+                ? common[seeds] : new Geometry(pits, seeds);
+    }
+
+    /**
+     * Retrieve the geometry named by the mancala.pits and mancala.seeds properties
+     *
+     * @return the geometry, the standard one unless the properties are set
+     */
+    static Geometry fromProperties() {
+        return of(Integer.getInteger("mancala.pits", 6), Integer.getInteger("mancala.seeds", 4));
+    }
+
+    /**
+     * Lay out a board at the start of a game
+     *
+     * @return a new board
+     */
+    int[] start() {
+        return start.clone();
+    }
+
+    /**
+     * Whether this is the board the game starts from by default, the only
+     * one the opening book holds moves for
+     *
+     * @return true for six pits a side with four stones each
+     */
+    boolean isStandard() {
+        return this == STANDARD;
+    }
+
+    /**
+     * Whether boards of this size sow through Rules, so the alpha-beta AI,
+     * its tables and its evaluators can play them
+     *
+     * @return true for six pits a side, with any number of stones
+     */
+    boolean usesRules() {
+        return pits == 6;
+    }
+
+    /**
+     * Sow the stones of a pit in place, capturing into the mover's store,
+     * the same way as Rules.sow does on the standard board
+     *
+     * @param pit   the pit to empty
+     * @param board the board to change
+     * @return true if the pit was empty or the last stone landed in the mover's store
+     */
+    boolean sow(final int pit, int[] board) {
+        // six pits a side take the hard-coded path, whose loops the compiler unrolls
+        return pits == 6 ? Rules.sow(pit, board) : sowAny(pit, board);
+    }
+
+    /**
+     * Sow on a board of any size, see sow. Package-private so the standard
+     * board's generic path can be benchmarked and checked against Rules.
+     */
+    boolean sowAny(final int pit, int[] board) {
+        int stones = board[pit];
+        if (stones < 1) {
+            return true;
+        }
+
+        board[pit] = 0;
+
+        int laps = stones / lap;
+        int rest = stones - laps * lap;
+
+        if (laps > 0) {
+            for (int i = 1; i <= lap; i++) {
+                board[i] += laps;
+            }
+        }
+
+        // the rest go to the pits after this one, wrapping from the last pit to pit 1
+        int end = pit + 1 + rest;
+        for (int i = pit + 1; i < Math.min(end, lap + 1); i++) {
+            board[i]++;
+        }
+        for (int i = 1; i < end - lap; i++) {
+            board[i]++;
+        }
+
+        int last = lastPit[pit][rest];
+
+        if (last < pits) {
+            int across = opposite[last];
+            if (board[last] == 1 && board[across] > 0) {
+                board[store] += board[across] + 1;
+                board[last] = 0;
+                board[across] = 0;
+            }
+        }
+
+        return last == store;
+    }
+
+    /**
+     * Find where the last stone sown from a pit lands
+     *
+     * @param pit    the pit sown
+     * @param stones the stones in it, at least one
+     * @return the pit or store receiving the last stone
+     */
+    int lastPit(int pit, int stones) {
+        return lastPit[pit][stones % lap];
+    }
+
+    /**
+     * Find the pit across from one of the mover's pits
+     *
+     * @param pit one of the mover's pits
+     * @return the other player's pit facing it
+     */
+    int opposite(int pit) {
+        return opposite[pit];
+    }
+
+    /**
+     * Check whether a row of pits has run out of stones
+     *
+     * @param board the board to check
+     * @param first the first pit of the row, 0 or store + 1
+     * @return true if all the row's pits are empty
+     */
+    boolean isRowEmpty(int[] board, int first) {
+        for (int i = first; i < first + pits; ++i) {
+            if (board[i] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the game is over on a board
+     *
+     * @param board the board to check
+     * @return true if either row is empty
+     */
+    boolean isGameOver(int[] board) {
+        return isRowEmpty(board, 0) || isRowEmpty(board, store + 1);
+    }
+
+    /**
+     * Lay a board out for the other player in place, as MancalaEngine does when the turn passes
+     *
+     * @param board the board to change
+     */
+    void swapSides(int[] board) {
+        for (int i = 0; i <= store; i++) {
+            int stones = board[i];
+            board[i] = board[i + store + 1];
+            board[i + store + 1] = stones;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pits + "x" + seeds;
+    }
+}
@@ -0,0 +1,94 @@
+package shea.mancala;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets for reading off percentiles, safe to record
+ * into from any number of threads.
+ * Durations under 32 microseconds get a bucket each, longer ones share
+ * 32 buckets per power of two, so a percentile is within about 3%.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+    /**
+     * Count a duration
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * Count everything recorded so far
+     *
+     * @return the number of durations
+     */
+    long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Find the duration a fraction of the recorded ones did not exceed
+     *
+     * @param fraction between 0 and 1, for example 0.99
+     * @return the duration in milliseconds, 0 if nothing was recorded
+     */
+    double percentile(double fraction) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperMicros(i) / 1000.0;
+            }
+        }
+        return upperMicros(counts.length() - 1) / 1000.0;
+    }
+
+    /**
+     * Summarise the recorded durations in milliseconds
+     *
+     * @return the count, median, 90th, 99th and 99.9th percentiles and maximum
+     */
+    @Override
+    public String toString() {
+        return String.format("%d moves, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                count(), percentile(0.5), percentile(0.9), percentile(0.99), percentile(0.999), percentile(1));
+    }
+
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        return (exponent - 4) * SUB_BUCKETS + (int) (micros >>> (exponent - 5)) - SUB_BUCKETS;
+    }
+
+    /**
+     * The longest duration that falls in a bucket
+     */
+    private static long upperMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + 4;
+        long lower = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << (exponent - 5);
+        return lower + (1L << (exponent - 5)) - 1;
+    }
+}
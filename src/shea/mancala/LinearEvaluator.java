@@ -0,0 +1,109 @@
+package shea.mancala;
+
+/**
+ * Scores a board as a weighted count of its stones, each of the
+ * opponent's pits counting against the player to move as much as the
+ * matching pit of their own. Being linear, a move changes the score by
+ * the weights of where its stones went, which are looked up per pit and
+ * stone count, so update() takes the same few steps however many stones
+ * are sown.
+ */
+final class LinearEvaluator implements Evaluator {
+
+    /**
+     * Weight of each pit and store, negative on the opponent's side
+     */
+    private final int[] weights = new int[14];
+
+    /**
+     * Sum of the weights of pits 1-12, which a full lap of sowing adds to
+     */
+    private final int lapWeight;
+
+    /**
+     * restWeight[pit][rest] sums the weights of the rest pits sown after a pit
+     */
+    private final int[][] restWeight = new int[13][Rules.LAP];
+
+    /**
+     * restStore[pit][rest] is 1 if those pits include store 6
+     */
+    private final int[][] restStore = new int[13][Rules.LAP];
+
+    /**
+     * Create an evaluator
+     *
+     * @param pitWeight   the weight of a stone in a pit
+     * @param storeWeight the weight of a stone in a store
+     */
+    LinearEvaluator(int pitWeight, int storeWeight) {
+        this(new int[]{pitWeight, pitWeight, pitWeight, pitWeight, pitWeight, pitWeight, storeWeight});
+    }
+
+    /**
+     * Create an evaluator weighing each pit on its own, as WeightTuner fits them
+     *
+     * @param own the weights of pits 0-5 and store 6, the same for the
+     *            opponent's pits and store facing the other way
+     */
+    LinearEvaluator(int[] own) {
+        if (own.length != 7) {
+            throw new IllegalArgumentException("expected 7 weights but got " + own.length);
+        }
+
+        for (int i = 0; i < 7; i++) {
+            weights[i] = own[i];
+            weights[i + 7] = -own[i];
+        }
+
+        int lap = 0;
+        for (int i = 1; i <= Rules.LAP; i++) {
+            lap += weights[i];
+        }
+        lapWeight = lap;
+
+        for (int pit = 0; pit < 13; pit++) {
+            int pointer = pit;
+            for (int rest = 1; rest < Rules.LAP; rest++) {
+                pointer = pointer == 12 ? 1 : pointer + 1;
+                restWeight[pit][rest] = restWeight[pit][rest - 1] + weights[pointer];
+                restStore[pit][rest] = restStore[pit][rest - 1] + (pointer == 6 ? 1 : 0);
+            }
+        }
+    }
+
+    @Override
+    public int evaluate(int[] board) {
+        int score = 0;
+        for (int i = 0; i < 14; i++) {
+            score += weights[i] * board[i];
+        }
+        return score;
+    }
+
+    @Override
+    public int update(int score, int[] before, int[] after, int pit) {
+        int stones = before[pit];
+        if (stones == 0) {
+            return score;
+        }
+
+        int laps = stones / Rules.LAP;
+        int rest = stones - laps * Rules.LAP;
+        score += laps * lapWeight + restWeight[pit][rest] - weights[pit] * stones;
+
+        // whatever reached store 6 other than by sowing was captured
+        int captured = after[6] - before[6] - laps - restStore[pit][rest];
+        if (captured > 0) {
+            int last = Rules.lastPit(pit, stones);
+            score += captured * weights[6] - weights[last] - (captured - 1) * weights[12 - last];
+        }
+
+        return score;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+}
@@ -0,0 +1,807 @@
+package shea.mancala;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The rules and state of a game, without any drawing.
+ * The board is always laid out for the player having a turn: their pits
+ * are 0-5 and their store is 6, the other player's pits are 7-12 and their
+ * store is 13. The pits are swapped around when the turn passes.
+ * This class does not depend on AWT or Swing and can run headless.
+ */
+class MancalaEngine {
+
+    /**
+     * The layout of the board at the start of a game
+     */
+    static final int[] START = {4, 4, 4, 4, 4, 4, 0, 4, 4, 4, 4, 4, 4, 0};
+
+    /**
+     * The book named by the mancala.book property, opened at startup, or
+     * null if it is not set or cannot be used
+     */
+    private static final OpeningBook BOOK = openBook();
+
+    /**
+     * Depth of the short search that guesses the opponent's move before pondering
+     */
+    private static final int PONDER_GUESS_DEPTH = 6;
+
+    /**
+     * Limits on the boards pondered: how many, and how many extra turns of the opponent's are followed
+     */
+    private static final int MAX_PONDER_BOARDS = 36, MAX_PONDER_TURNS = 3;
+
+    private int turnNumber = 0;
+
+    /**
+     * The number of pits and stones played with
+     */
+    private final Geometry geometry;
+
+    /**
+     * Defines the amount of stones in the pits
+     */
+    private int[] pitStones;
+
+    /**
+     * The player currently having a turn.
+     * Cannot be any number besides 1 or 2
+     */
+    private int currentPlayer = 1;
+
+    /**
+     * Determines when the game is won and who by
+     * <p>
+     * Valid values:
+     * -1 = game has not ended
+     * 0 = game ended in tie
+     * 1 = player 1 won
+     * 2 = player 2 won
+     */
+    private int winningPlayer = -1;
+
+    /**
+     * Search used to pick the AI's moves, created when first needed
+     */
+    private Search search;
+
+    /**
+     * Search used instead when more than one thread is available
+     */
+    private ParallelSearch parallelSearch;
+
+    /**
+     * Search used instead when the mancala.ai property is "mcts" or the board
+     * does not have six pits a side, which the alpha-beta search is written for
+     */
+    private MonteCarloSearch monteCarlo;
+
+    /**
+     * How the AI scores boards, null until the search is created unless set
+     */
+    private Evaluator evaluator;
+
+    /**
+     * How long the AI may search for each move, in milliseconds
+     */
+    private long aiMoveMillis = Long.getLong("mancala.ai.millis", 100);
+
+    /**
+     * Boards the AI may face after the opponent's turn, as searched by ponder,
+     * and the deepest result found for each with the work of every depth
+     * completed on it added up, null where none completed
+     */
+    private List<int[]> ponderBoards = new ArrayList<>();
+    private SearchStats[] ponderStats = new SearchStats[0];
+
+    /**
+     * The thread running ponder, which searches without holding the
+     * engine's lock, or null
+     */
+    private Thread ponderer;
+
+    /**
+     * Open the default opening book. The book only saves searching, so a
+     * missing, corrupt or stale one is logged and played without rather
+     * than stopping the engine from loading.
+     *
+     * @return the book, or null
+     */
+    private static OpeningBook openBook() {
+        try {
+            return OpeningBook.openDefault();
+        } catch (IllegalStateException e) {
+            Logger.getLogger(MancalaEngine.class.getName()).log(Level.WARNING,
+                    "searching instead of using the opening book", e);
+            return null;
+        }
+    }
+
+    /**
+     * Start a game from the usual layout
+     */
+    MancalaEngine() {
+        this(Geometry.STANDARD);
+    }
+
+    /**
+     * Start a game on a board of another size
+     *
+     * @param geometry the pits per player and stones per pit
+     */
+    MancalaEngine(Geometry geometry) {
+        this.geometry = geometry;
+        this.pitStones = geometry.start();
+    }
+
+    /**
+     * Start a game from another layout, player 1 to move
+     *
+     * @param start the pits, with player 1's pits in 0-5
+     */
+    MancalaEngine(int[] start) {
+        this.geometry = Geometry.STANDARD;
+        this.pitStones = start.clone();
+    }
+
+    /**
+     * Retrieve the size of the board
+     *
+     * @return the pits per player and stones per pit
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Retrieve the player who is currently having a turn
+     *
+     * @return the current player number
+     */
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Retrieve the player who is *not* currently having a turn
+     *
+     * @return the other player number
+     */
+    public int getOtherPlayer() {
+        return currentPlayer == 1 ? 2 : 1;
+    }
+
+    /**
+     * Retrieve the stones in a pit
+     *
+     * @param pit a pit number, with the current player's pits first
+     * @return the amount of stones
+     */
+    public int getStones(int pit) {
+        return pitStones[pit];
+    }
+
+    /**
+     * Retrieve a copy of the board
+     *
+     * @return the pits, with the current player's pits first
+     */
+    public int[] getPits() {
+        return pitStones.clone();
+    }
+
+    /**
+     * Retrieve how many stones a player has in their store
+     *
+     * @param player 1 or 2
+     * @return the player's score
+     */
+    public int getScore(int player) {
+        return player == currentPlayer ? pitStones[geometry.store] : pitStones[geometry.otherStore];
+    }
+
+    /**
+     * Retrieve the winner of the game
+     *
+     * @return -1 if the game has not ended, 0 for a tie, otherwise the winning player
+     */
+    public int getWinner() {
+        return winningPlayer;
+    }
+
+    /**
+     * Check whether the game has ended
+     *
+     * @return true once either row is empty
+     */
+    public boolean isGameOver() {
+        return winningPlayer >= 0 || geometry.isGameOver(pitStones);
+    }
+
+    public int getTurnNumber() {
+        return turnNumber;
+    }
+
+    /**
+     * Check whether the current player may sow a pit
+     *
+     * @param pit a pit number
+     * @return true if the pit is in the current player's row and has stones
+     */
+    public boolean isLegalMove(int pit) {
+        return winningPlayer < 0 && pit >= 0 && pit < geometry.pits && pitStones[pit] > 0;
+    }
+
+    /**
+     * List the pits the current player may sow
+     *
+     * @return the legal pits in ascending order
+     */
+    public int[] getLegalMoves() {
+        int count = 0;
+        int[] moves = new int[geometry.pits];
+        for (int pit = 0; pit < geometry.pits; pit++) {
+            if (isLegalMove(pit)) {
+                moves[count++] = pit;
+            }
+        }
+        return Arrays.copyOf(moves, count);
+    }
+
+    /**
+     * Perform a player's turn
+     *
+     * @param pit the pit selected by the current player
+     * @return true if the same player moves again
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    public boolean applyMove(int pit) {
+        if (!isLegalMove(pit)) {
+            throw new IllegalArgumentException("pit " + pit + " cannot be played");
+        }
+
+        turnNumber++;
+        // perform the player's action
+        boolean result = geometry.sow(pit, pitStones);
+
+        // make sure that a player hasn't run out of stones
+        checkForWin();
+
+        // change the player if the current turn is ended
+        if (!result && winningPlayer < 0) {
+            switchTurn();
+        }
+
+        return result && winningPlayer < 0;
+    }
+
+    /**
+     * Begin the other player's turn
+     */
+    private void switchTurn() {
+        // Change the active player
+        currentPlayer = getOtherPlayer();
+
+        // Reverse the pit positions
+        geometry.swapSides(pitStones);
+    }
+
+    /**
+     * Check if either player has won the game
+     *
+     * @return true if the game has ended
+     */
+    public boolean checkForWin() {
+        int store = geometry.store, otherStore = geometry.otherStore;
+        boolean topRowEmpty = geometry.isRowEmpty(pitStones, store + 1);
+        boolean bottomRowEmpty = geometry.isRowEmpty(pitStones, 0);
+
+        if (!topRowEmpty && !bottomRowEmpty) {
+            return false;
+        }
+
+        // Take the stones from the non-empty row and add them to that player's store
+        if (topRowEmpty && !bottomRowEmpty) {
+            for (int i = 0; i < store; ++i) {
+                pitStones[store] += pitStones[i];
+                pitStones[i] = 0;
+            }
+        } else if (!topRowEmpty && bottomRowEmpty) {
+            for (int i = store + 1; i < otherStore; ++i) {
+                pitStones[otherStore] += pitStones[i];
+                pitStones[i] = 0;
+            }
+        }
+
+        // Determine which player holds the most stones
+        if (pitStones[store] > pitStones[otherStore]) {
+            winningPlayer = getCurrentPlayer();
+        } else if (pitStones[store] < pitStones[otherStore]) {
+            winningPlayer = getOtherPlayer();
+        } else {
+            // tie
+            winningPlayer = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Set how long the AI may search for each move
+     *
+     * @param millis the time budget in milliseconds
+     */
+    public void setAiMoveMillis(long millis) {
+        aiMoveMillis = millis;
+    }
+
+    /**
+     * Choose how this engine's AI scores boards. The scores in the
+     * transposition table and the pondered results were found with the old
+     * evaluator, so they are thrown away, and pondering is stopped.
+     *
+     * @param evaluator the evaluator, Evaluator.fromProperties() by default
+     */
+    public synchronized void setEvaluator(Evaluator evaluator) {
+        if (evaluator == this.evaluator) {
+            return;
+        }
+        stopPondering();
+        this.evaluator = evaluator;
+
+        if (parallelSearch != null) {
+            parallelSearch.setEvaluator(evaluator);
+            parallelSearch.getTable().clear();
+        } else if (search != null) {
+            search.setEvaluator(evaluator);
+            search.getTable().clear();
+        }
+        ponderBoards = new ArrayList<>();
+    }
+
+    /**
+     * Find the best move for the current player
+     *
+     * @return the pit to move, or -1 if the game is over
+     */
+    public int getBestMove() {
+        return findBestMove(pitStones.clone()).move;
+    }
+
+    /**
+     * Look the board up in the opening book, otherwise search for the best
+     * move on a copy of the board within the AI's time budget. Time spent
+     * pondering on the board counts towards the budget: once it has used
+     * all of it the pondered move is returned without searching, otherwise
+     * only the rest is searched, from the table pondering filled. Pondering
+     * still running is stopped first.
+     * May be called from a thread other than the one playing moves.
+     *
+     * @param board the board with the player to move in pits 0-5
+     * @return the move found and the work done
+     */
+    public synchronized SearchStats findBestMove(int[] board) {
+        // the book only holds moves for the weights it was searched with
+        SearchStats stats = BOOK != null && geometry.isStandard()
+                && (evaluator == null || BOOK.isSearchedWith(evaluator)) ? BOOK.lookup(board) : null;
+        if (stats != null) {
+            SearchMonitor.INSTANCE.record(stats);
+            return stats;
+        }
+
+        createSearch();
+        long started = System.nanoTime();
+
+        stopPondering();
+        SearchStats pondered = takePonderResult(board);
+        long millis = aiMoveMillis - (pondered != null ? pondered.elapsedNanos / 1_000_000 : 0);
+
+        if (pondered != null && millis <= 0) {
+            stats = new SearchStats(pondered.move, pondered.score, pondered.depth, pondered.maxDepth,
+                    0, 0, 0, System.nanoTime() - started);
+        } else {
+            stats = monteCarlo != null
+                    ? monteCarlo.searchInTime(board, millis)
+                    : parallelSearch != null
+                    ? parallelSearch.searchInTime(board, millis)
+                    : search.searchInTime(board, millis);
+
+            // pondering may have got further on this board than the rest of the time did
+            if (pondered != null && pondered.depth > stats.depth) {
+                stats = new SearchStats(pondered.move, pondered.score, pondered.depth, pondered.maxDepth,
+                        stats.nodes, stats.leaves, stats.cutoffs, System.nanoTime() - started);
+            }
+        }
+
+        // the work done while pondering was counted as it happened, see ponder
+        if (pondered != null) {
+            SearchMonitor.INSTANCE.recordPonderHit();
+        }
+        SearchMonitor.INSTANCE.record(stats);
+        return stats;
+    }
+
+    /**
+     * Search ahead while the opponent thinks, until the calling thread is
+     * interrupted. Every board the AI can face after the opponent's turn is
+     * searched one depth at a time, starting with the opponent's expected
+     * move, so the transposition table already holds the subtree of
+     * whichever move is played. The next findBestMove on one of these boards
+     * takes the time spent on it here off its budget, and uses the deepest
+     * result found here if its own search got less far. The work done here
+     * is counted in SearchMonitor apart from the replies' own searches.
+     * The engine's lock is not held while searching; findBestMove,
+     * setEvaluator and another ponder interrupt the pondering thread and
+     * wait for it instead.
+     * The alpha-beta search of six pit boards is the only one that ponders.
+     *
+     * @param board the board with the opponent to move in pits 0-5
+     */
+    public void ponder(int[] board) {
+        synchronized (this) {
+            stopPondering();
+            createSearch();
+            ponderBoards = new ArrayList<>();
+            ponderStats = new SearchStats[0];
+            if (monteCarlo != null || Rules.isGameOver(board)) {
+                return;
+            }
+
+            // the whole ponder is one table generation, so its boards do not age each other out
+            getTable().newSearch();
+            ponderer = Thread.currentThread();
+        }
+
+        try {
+            searchPonderBoards(board);
+        } finally {
+            synchronized (this) {
+                ponderer = null;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Run ponder's searches, holding the engine's lock only to collect the
+     * boards and record results
+     */
+    private void searchPonderBoards(int[] board) {
+        // the reply a short search expects goes first
+        SearchStats guess = searchDepth(board, PONDER_GUESS_DEPTH);
+        SearchMonitor.INSTANCE.recordPonder(guess);
+
+        List<int[]> boards;
+        synchronized (this) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            int expected = guess.move;
+            addReplies(board, expected, 0);
+            for (int pit = 0; pit < 6; pit++) {
+                if (pit != expected) {
+                    addReplies(board, pit, 0);
+                }
+            }
+            ponderStats = new SearchStats[ponderBoards.size()];
+            boards = ponderBoards;
+        }
+
+        for (int depth = 1; depth <= Search.MAX_DEPTH; depth++) {
+            for (int i = 0; i < boards.size(); i++) {
+                SearchStats stats = searchDepth(boards.get(i), depth);
+
+                synchronized (this) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    SearchMonitor.INSTANCE.recordPonder(stats);
+                    SearchStats before = ponderStats[i];
+                    ponderStats[i] = before == null ? stats : new SearchStats(stats.move, stats.score, stats.depth,
+                            stats.maxDepth, before.nodes + stats.nodes, before.leaves + stats.leaves,
+                            before.cutoffs + stats.cutoffs, before.elapsedNanos + stats.elapsedNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Interrupt the thread running ponder, if another one is, and wait for
+     * it to give up its search. Called with the engine's lock held, which
+     * the wait lets go of.
+     */
+    private void stopPondering() {
+        Thread thread = ponderer;
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+
+        thread.interrupt();
+        boolean interrupted = false;
+        while (ponderer == thread) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // pondering stops within a few thousand nodes; keep waiting so no two searches overlap
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collect the boards the AI faces after the opponent sows a pit,
+     * following the opponent's extra turns
+     *
+     * @param board the board with the opponent to move in pits 0-5
+     * @param turn  how many extra turns the opponent has already taken
+     */
+    private void addReplies(int[] board, int pit, int turn) {
+        if (pit < 0 || board[pit] == 0 || ponderBoards.size() >= MAX_PONDER_BOARDS) {
+            return;
+        }
+
+        int[] child = board.clone();
+        boolean again = Rules.sow(pit, child);
+
+        if (Rules.isGameOver(child)) {
+            return;
+        } else if (!again) {
+            int[] swapped = new int[14];
+            System.arraycopy(child, 7, swapped, 0, 7);
+            System.arraycopy(child, 0, swapped, 7, 7);
+
+            for (int[] seen : ponderBoards) {
+                if (Arrays.equals(seen, swapped)) {
+                    return;
+                }
+            }
+            ponderBoards.add(swapped);
+        } else if (turn < MAX_PONDER_TURNS) {
+            for (int next = 0; next < 6; next++) {
+                addReplies(child, next, turn + 1);
+            }
+        }
+    }
+
+    /**
+     * Find what pondering found for a board, forgetting every other board
+     *
+     * @return the deepest completed result with the work of every depth,
+     * or null if the board was not pondered
+     */
+    private SearchStats takePonderResult(int[] board) {
+        SearchStats stats = null;
+        for (int i = 0; i < ponderBoards.size() && i < ponderStats.length; i++) {
+            if (Arrays.equals(ponderBoards.get(i), board)) {
+                stats = ponderStats[i];
+            }
+        }
+
+        ponderBoards = new ArrayList<>();
+        return stats;
+    }
+
+    /**
+     * Search for ponder, in the table generation ponder started
+     */
+    private SearchStats searchDepth(int[] board, int depth) {
+        return parallelSearch != null ? parallelSearch.searchDepth(board, depth, false)
+                : search.searchDepth(board, depth, false);
+    }
+
+    /**
+     * Create the AI's search, so games without an AI do not pay for its table.
+     * The endgame table named by the mancala.endgame property and the
+     * weights named by mancala.weights are read here.
+     */
+    private void createSearch() {
+        if (search != null || parallelSearch != null || monteCarlo != null) {
+            return;
+        }
+
+        if (!geometry.usesRules() || "mcts".equals(System.getProperty("mancala.ai"))) {
+            monteCarlo = new MonteCarloSearch(geometry, ParallelSearch.DEFAULT_THREADS, MonteCarloSearch.DEFAULT_NODES);
+            return;
+        }
+
+        EndgameTable endgame = EndgameTable.openDefault();
+        if (evaluator == null) {
+            evaluator = Evaluator.fromProperties();
+        }
+
+        if (ParallelSearch.DEFAULT_THREADS > 1) {
+            parallelSearch = new ParallelSearch(ParallelSearch.DEFAULT_THREADS);
+            parallelSearch.setEndgameTable(endgame);
+            parallelSearch.setEvaluator(evaluator);
+        } else {
+            search = new Search();
+            search.setEndgameTable(endgame);
+            search.setEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Retrieve the AI's transposition table
+     *
+     * @return the table, or null if the AI searches without one
+     */
+    synchronized TranspositionTable getTable() {
+        createSearch();
+        return monteCarlo != null ? null
+                : parallelSearch != null ? parallelSearch.getTable() : search.getTable();
+    }
+
+    /**
+     * Perform a player's turn by moving the stones between pits
+     *
+     * @param pit the pit selected by the user
+     * @return whether the user's turn is ended
+     */
+    protected boolean moveStonesChild(final int pit, int[] childBoard) {
+        return Rules.sow(pit, childBoard);
+    }
+
+    /*
+     *	logic from: https://www.youtube.com/watch?v=8r78GYmuHaY
+     */
+    public int alphaBeta(int depth, double alpha, double beta, boolean isMax, int[] currBoard) {
+        int move; //move for this instance of alphaBeta
+        double score; //score for this node
+        if (Rules.isGameOver(currBoard)) {
+            return -1;
+        } else if (depth == 0) {
+            return heuristicStoneCompare(currBoard);
+        }
+        //get all the children nodes for this
+        ArrayList<int[]> childrenBoard = getChildren(currBoard, isMax); //takes in the board of this instance and returns all children, or all possible moves
+
+        if (isMax) {
+            score = Double.NEGATIVE_INFINITY;
+        } else {
+            score = Double.POSITIVE_INFINITY;
+        }
+
+        move = -1;
+
+        for (int[] childBoard : childrenBoard) {
+            int tempVal = alphaBeta(depth - 1, alpha, beta, !isMax, childBoard);
+
+            boolean replace = shouldReplace(tempVal, isMax, score);
+
+            if (replace) {
+                score = tempVal;
+                move = childBoard[childBoard.length - 1];
+            }
+
+            if (isMax) {
+                alpha = Math.max(alpha, tempVal);
+            } else {
+                beta = Math.min(beta, tempVal);
+            }
+
+            if (alpha > beta) {
+                break;
+            }
+        }
+        return move;
+    }
+
+    public boolean shouldReplace(int x, boolean isMax, double score) {
+        if (isMax) {
+            if (x > score) {
+                return true;
+            }
+        } else {
+            if (x < score) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param currBoard
+     * @return
+     */
+    public ArrayList<int[]> getChildren(int[] currBoard, boolean isMax) {
+        //need to get all possible moves, this will be done by first making a copy of the currBoard. Making a move on whatever player turn it is
+        ArrayList<int[]> allChildrenBoards = new ArrayList<>();
+
+        if(isMax) {
+            for (int i = 0; i < 6; i++) {
+                //make a new array list
+                if (currBoard[i] != 0) { //there needs to be stone to move for a child to be created
+                    int[] childBoard = new int[currBoard.length + 1]; //allocates an appr. size array for this children, the last index is what pit was chosen to move
+                    childBoard[currBoard.length] = i;
+                    copy(currBoard, childBoard); //copies the board
+                    //the curr player moves are always in the 0-5 position
+                    moveStonesChild(i, childBoard); //moves the child for the specific board being passes in, doesn't change the original board that is passed in
+                    allChildrenBoards.add(childBoard);
+                }
+            }
+        }else{
+            for (int i = 7; i < 13; i++) {
+                //make a new array list
+                if (currBoard[i] != 0) { //there needs to be stone to move for a child to be created
+                    int[] childBoard = new int[currBoard.length + 1]; //allocates an appr. size array for this children, the last index is what pit was chosen to move
+                    childBoard[currBoard.length] = i;
+                    copy(currBoard, childBoard); //copies the board
+                    //the curr player moves are always in the 0-5 position
+                    moveStonesChild(i, childBoard); //moves the child for the specific board being passes in, doesn't change the original board that is passed in
+                    allChildrenBoards.add(childBoard);
+                }
+            }
+        }
+
+        return allChildrenBoards;
+    }
+
+    /**
+     * Copies a to b
+     *
+     * @param a - the original array
+     * @param b - the new array
+     * @return b
+     */
+    public void copy(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            b[i] = a[i];
+        }
+    }
+
+
+    /*
+     * Returns value representing the goodness of the board for the current player
+     * positive/ high values are favorable for current player
+     * negative/ low values are unfavorable for current player
+     */
+    public int heuristicStoneCompare(int[] board) {
+        int yourStones = 0;
+        for (int i = 0; i < 7; i++) {
+            if (i == 6) {
+                yourStones += board[i] * 2;
+            } else {
+                yourStones += board[i];
+            }
+        }
+        int enemyStones = 0;
+        for (int i = 7; i < 14; i++) {
+            if (i == 13) {
+                enemyStones += board[i] * 2;
+            } else {
+                enemyStones += board[i];
+            }
+        }
+        return yourStones - enemyStones;
+    }
+
+    public void printTheBoard() {
+        System.out.println("Mancala Turn " + turnNumber + ", Player: " + getCurrentPlayer());
+        System.out.print("  "); //spacing
+        //print out the top player
+        for (int i = geometry.store - 1; i >= 0; i--) {
+            System.out.print(pitStones[i] + " ");
+        }
+        System.out.println();
+
+        //print out the mancala pits
+        System.out.println(pitStones[geometry.store] + "             " + pitStones[geometry.otherStore]);
+        System.out.print("  "); //Spacenig
+        //print out the bottom player
+        for (int i = geometry.store + 1; i < geometry.otherStore; i++) {
+            System.out.print(pitStones[i] + " ");
+        }
+
+        System.out.println("\n");
+    }
+}
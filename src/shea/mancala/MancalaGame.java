@@ -3,16 +3,21 @@ package shea.mancala;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.swing.BorderFactory;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 
 /**
- * This class handles all game operations
+ * This class draws the game and passes the players' moves to the engine
  *
  * @author Shea Bunge
  * @version 1.0
@@ -25,34 +30,69 @@ class MancalaGame extends JPanel implements MouseListener {
      */
     final Board board;
 
-    private int turnNumber = 0;
+    /**
+     * Holds the rules and state of the game
+     */
+    final MancalaEngine engine = new MancalaEngine(Geometry.fromProperties());
 
     /**
-     * Defines the amount of stones in the pits
+     * Player 2 will be the AI if this boolean is set to true
      */
-    public int[] pitStones = new int[]{4, 4, 4, 4, 4, 4, 0, 4, 4, 4, 4, 4, 4, 0};
+    private boolean AI = true;
 
     /**
-     * The player currently having a turn.
-     * Cannot be any number besides 1 or 2
+     * Runs the AI's searches off the event dispatch thread
      */
-    private int currentPlayer = 1;
+    private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mancala-ai");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
-     * Player 2 will be the AI if this boolean is set to true
+     * The AI search in progress, or null
      */
-    private boolean AI = true;
+    private Future<?> aiTask;
+
+    /**
+     * Whether the AI searches ahead while player 1 thinks
+     */
+    private static final boolean PONDER = Boolean.parseBoolean(System.getProperty("mancala.ponder", "true"));
+
+    /**
+     * The AI's search during player 1's turn, or null
+     */
+    private Future<?> ponderTask;
+
+    /**
+     * Whether every move of the player to move is scored and shown while they think
+     */
+    private static final boolean ANALYSE = Boolean.getBoolean("mancala.analysis");
+
+    /**
+     * Scores the moves of a player's turn, or null if not analysing
+     */
+    private final Analysis analysis;
+
+    /**
+     * The latest line of each pit shown for the board being analysed, set on the event dispatch thread
+     */
+    private final Analysis.Line[] analysisLines = new Analysis.Line[6];
 
     /**
-     * Determines when the game is won and who by
-     * <p>
-     * Valid values:
-     * -1 = game has not ended
-     * 0 = game ended in tie
-     * 1 = player 1 won
-     * 2 = player 2 won
+     * Increased whenever a search is started or cancelled, so a stale result is ignored
      */
-    private int winningPlayer = -1;
+    private int aiSearchId = 0;
+
+    /**
+     * Shows each move one stone at a time
+     */
+    private final SowingAnimation animation = new SowingAnimation(this);
+
+    /**
+     * A move the AI found while the previous move was still being shown, or -1
+     */
+    private int pendingAIMove = -1;
 
     /**
      * Initialize the class
@@ -62,6 +102,14 @@ class MancalaGame extends JPanel implements MouseListener {
 
         setBorder(BorderFactory.createLineBorder(Color.black));
         addMouseListener(this);
+        SearchMonitor.register();
+
+        // the alpha-beta search is written for six pit boards only
+        analysis = ANALYSE && engine.getGeometry().usesRules()
+                ? new Analysis(ParallelSearch.DEFAULT_THREADS, new TranspositionTable(), EndgameTable.openDefault(),
+                        Evaluator.fromProperties(), line -> SwingUtilities.invokeLater(() -> showAnalysis(line)))
+                : null;
+        startAnalysis();
     }
 
     /**
@@ -78,14 +126,9 @@ class MancalaGame extends JPanel implements MouseListener {
      * Retrieve the player who is currently having a turn
      *
      * @return the current player number
-     * @throws RuntimeException if the player does not have a valid number
      */
-    public int getCurrentPlayer() throws RuntimeException {
-        if (currentPlayer != 1 && currentPlayer != 2) {
-            throw new RuntimeException("currentPlayer must be either 1 or 2");
-        }
-
-        return currentPlayer;
+    public int getCurrentPlayer() {
+        return engine.getCurrentPlayer();
     }
 
     /**
@@ -94,320 +137,208 @@ class MancalaGame extends JPanel implements MouseListener {
      * @return the other player number
      */
     public int getOtherPlayer() {
-        return currentPlayer == 1 ? 2 : 1;
+        return engine.getOtherPlayer();
     }
 
     /**
-     * Perform a player's turn by moving the stones between pits
+     * Retrieve the player whose side of the board is drawn at the bottom,
+     * the player moving while a move is being shown
      *
-     * @param pit the pit selected by the user
-     * @return whether the user's turn is ended
+     * @return the player number
      */
-    protected boolean moveStones(final int pit) {
-        int pointer = pit;
-
-        // return if pit has no stones
-        if (pitStones[pit] < 1) {
-            return true;  //true means go again
-        }
-
-        // take stones out of pit
-        int stones = pitStones[pit];
-        pitStones[pit] = 0;
-
-        while (stones > 0) {
-            ++pointer;
+    public int getShownPlayer() {
+        return animation.isRunning() ? animation.getPlayer() : engine.getCurrentPlayer();
+    }
 
-            // skip other player's storage pit and reset pointer
-            if (pointer == 13) {
-                pointer = 0;
-            } else {
-                pitStones[pointer]++;
-                stones--;
-            }
+    /**
+     * Set how long the AI may search for each move
+     *
+     * @param millis the time budget in milliseconds
+     */
+    public void setAiMoveMillis(long millis) {
+        engine.setAiMoveMillis(millis);
+    }
 
-            repaint();
-        }
+    //run the AI code here for min max
+    public void AILogic() {
+//		Random rand = new Random();
+//		int randomIndex = rand.nextInt(6) + 1;
+//		System.out.println("The AI is picking index: " + randomIndex);
+//		doPlayerTurn(randomIndex); //doing the player
+        final int[] board = engine.getPits();
+        final int id = ++aiSearchId;
 
-        // set to point to the opposite pit
-        int inversePointer = -pointer + 12;
+        // the search below waits for pondering to stop, keeping what it found
+        stopPondering();
 
-        // Check for capture
-        if (pointer < 6 && pitStones[pointer] == 1 && pitStones[inversePointer] > 0) {
+        // search in the background and hand the move back to the event dispatch thread
+        aiTask = aiExecutor.submit(() -> {
+            int move = findAIMove(board);
 
-            // Transfer this stone along with opposite pit's stones to store
-            pitStones[6] += pitStones[inversePointer] + 1;
+            if (!Thread.currentThread().isInterrupted()) {
+                SwingUtilities.invokeLater(() -> finishAITurn(id, move));
+            }
+        });
+    }
 
-            // Clear the pits
-            pitStones[pointer] = 0;
-            pitStones[inversePointer] = 0;
-        }
+    /**
+     * Search for the AI's move, called off the event dispatch thread
+     *
+     * @param board a copy of the board with the AI's pits in 0-5
+     * @return the pit to move, or -1 if there is no move
+     */
+    private int findAIMove(int[] board) {
+        SearchStats stats = engine.findBestMove(board);
 
-        // return true if the turn ended in storage pit
-        //printTheBoard();
-        return pointer == 6;
+        // the search's and the table's figures are read through SearchMonitor
+        SearchMonitor.INSTANCE.watch(engine.getTable());
+        return stats.move;
     }
 
     /**
-     * Perform a player's turn by moving the stones between pits
+     * Play the move found by the AI
      *
-     * @param pit the pit selected by the user
-     * @return whether the user's turn is ended
+     * @param id   the search that found the move
+     * @param move the pit to move
      */
-    protected boolean moveStonesChild(final int pit, int[] childBoard) {
-        int pointer = pit;
-
-        // return if pit has no stones
-        if (childBoard[pit] < 1) {
-            return true;  //true means go again
+    private void finishAITurn(int id, int move) {
+        if (id != aiSearchId) {
+            return;
         }
 
-        // take stones out of pit
-        int stones = childBoard[pit];
-        childBoard[pit] = 0;
-
-        while (stones > 0) {
-            ++pointer;
+        aiTask = null;
 
-            // skip other player's storage pit and reset pointer
-            if (pointer == 13) {
-                pointer = 0;
-            } else {
-                childBoard[pointer]++;
-                stones--;
-            }
+        // let the previous move finish showing first
+        if (animation.isRunning()) {
+            pendingAIMove = move;
+        } else if (engine.isLegalMove(move)) {
+            doPlayerTurn(move);
         }
+    }
 
-        // set to point to the opposite pit
-        int inversePointer = -pointer + 12;
-
-        // Check for capture
-        if (pointer < 6 && childBoard[pointer] == 1 && childBoard[inversePointer] > 0) {
-
-            // Transfer this stone along with opposite pit's stones to store
-            childBoard[6] += childBoard[inversePointer] + 1;
+    /**
+     * Play the AI's move once the move before it has been shown
+     */
+    private void finishAnimation() {
+        repaint();
 
-            // Clear the pits
-            childBoard[pointer] = 0;
-            childBoard[inversePointer] = 0;
+        int move = pendingAIMove;
+        pendingAIMove = -1;
+        if (move >= 0 && engine.isLegalMove(move)) {
+            doPlayerTurn(move);
         }
-//        System.out.println("Moving index: " + childBoard[childBoard.length - 1]);
-//        for (int i = 0; i < 14; i++) {
-//            System.out.print(childBoard[i] + " ");
-//            if (i == 6) {
-//                System.out.println();
-//            }
-//        }
-//        System.out.println("\n");
-
-        return pointer == 6;
     }
 
     /**
-     * Begin the other player's turn
+     * Let the AI search ahead on its own thread until player 1 has moved
      */
-    public void switchTurn() {
-        // If the AI is present
-        if (!AI) {
-            // Change the active player
-            currentPlayer = getOtherPlayer();
-
-            // Reverse the pit positions
-            int[] newStones = new int[14];
-            System.arraycopy(pitStones, 7, newStones, 0, 7);
-            System.arraycopy(pitStones, 0, newStones, 7, 7);
-
-            pitStones = newStones;
-            repaint();
-        } else { //There is an AI
-            currentPlayer = getOtherPlayer(); //return player 2 which in this case is the AI
-
-            // Reverse the pit positions
-            int[] newStones = new int[14];  //need to reverse the pits to comply with logic
-            System.arraycopy(pitStones, 7, newStones, 0, 7);
-            System.arraycopy(pitStones, 0, newStones, 7, 7);
-
-            pitStones = newStones;
-            repaint();
-
-            //Code for the AI
-            if (getCurrentPlayer() == 2) {
-                AILogic();
-            }
-        }
+    private void startPondering() {
+        stopPondering();
 
+        final int[] board = engine.getPits();
+        ponderTask = aiExecutor.submit(() -> engine.ponder(board));
     }
 
-    //run the AI code here for min max
-    public void AILogic() {
-//		Random rand = new Random();
-//		int randomIndex = rand.nextInt(6) + 1;
-//		System.out.println("The AI is picking index: " + randomIndex);
-//		doPlayerTurn(randomIndex); //doing the player
-        int move = alphaBeta(12, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true, pitStones);
-        System.out.println("The Ai is making the move: " + move);
-        if (move >= 0) {
-            doPlayerTurn(move);
+    /**
+     * Interrupt pondering, if it is running
+     */
+    private void stopPondering() {
+        if (ponderTask != null) {
+            ponderTask.cancel(true);
+            ponderTask = null;
         }
     }
 
-    /*
-     *	logic from: https://www.youtube.com/watch?v=8r78GYmuHaY
-     */
-    public int alphaBeta(int depth, double alpha, double beta, boolean isMax, int[] currBoard) {
-        int move; //move for this instance of alphaBeta
-        double score; //score for this node
-        if (checkForWin()) {
-            return -1;
-        } else if (depth == 0) {
-            int scoreH = heuristicStoneCompare(currBoard);
-            System.out.println("Score for this board is: " + scoreH);
-            for (int i = 0; i < 14; i++) {
-                System.out.print(currBoard[i] + " ");
-                if (i == 6) {
-                    System.out.println();
-                }
-            }
-            System.out.println();
-            return scoreH;
-        }
-        //get all the children nodes for this
-        ArrayList<int[]> childrenBoard = getChildren(currBoard, isMax); //takes in the board of this instance and returns all children, or all possible moves
-
-        if (isMax) {
-            score = Double.NEGATIVE_INFINITY;
-        } else {
-            score = Double.POSITIVE_INFINITY;
+    /**
+     * Score the moves of the player to move, if analysing
+     */
+    private void startAnalysis() {
+        if (analysis != null && !engine.isGameOver()) {
+            analysis.start(engine.getPits());
         }
+    }
 
-        move = -1;
-
-        for (int[] childBoard : childrenBoard) {
-            int tempVal = alphaBeta(depth - 1, alpha, beta, !isMax, childBoard);
-
-            boolean replace = shouldReplace(tempVal, isMax, score);
-
-            if (replace) {
-                score = tempVal;
-                move = childBoard[childBoard.length - 1];
-            }
-
-            if (isMax) {
-                alpha = Math.max(alpha, tempVal);
-            } else {
-                beta = Math.min(beta, tempVal);
-            }
-
-            if (alpha > beta) {
-                break;
-            }
+    /**
+     * Stop analysing and take the scores off the board
+     */
+    private void stopAnalysis() {
+        if (analysis != null) {
+            analysis.stop();
+            Arrays.fill(analysisLines, null);
+            repaint();
         }
-        return move;
     }
 
-    public boolean shouldReplace(int x, boolean isMax, double score) {
-        if (isMax) {
-            if (x > score) {
-                return true;
-            }
-        } else {
-            if (x < score) {
-                return true;
-            }
+    /**
+     * Keep a line from the analysis to show, if it is still of the board in play
+     *
+     * @param line the latest result of one pit
+     */
+    private void showAnalysis(Analysis.Line line) {
+        if (Arrays.equals(line.board, engine.getPits())) {
+            analysisLines[line.pit] = line;
+
+            // the best pit is drawn apart from the rest, so a new score may change any of them
+            repaint();
         }
-        return false;
     }
 
     /**
-     * @param currBoard
-     * @return
-     */
-    public ArrayList<int[]> getChildren(int[] currBoard, boolean isMax) {
-        //need to get all possible moves, this will be done by first making a copy of the currBoard. Making a move on whatever player turn it is
-        ArrayList<int[]> allChildrenBoards = new ArrayList<>();
-
-        if(isMax) {
-            for (int i = 0; i < 6; i++) {
-                //make a new array list
-                if (currBoard[i] != 0) { //there needs to be stone to move for a child to be created
-                    int[] childBoard = new int[currBoard.length + 1]; //allocates an appr. size array for this children, the last index is what pit was chosen to move
-                    childBoard[currBoard.length] = i;
-                    copy(currBoard, childBoard); //copies the board
-                    //the curr player moves are always in the 0-5 position
-                    moveStonesChild(i, childBoard); //moves the child for the specific board being passes in, doesn't change the original board that is passed in
-                    allChildrenBoards.add(childBoard);
-                }
-            }
-        }else{
-            for (int i = 7; i < 13; i++) {
-                //make a new array list
-                if (currBoard[i] != 0) { //there needs to be stone to move for a child to be created
-                    int[] childBoard = new int[currBoard.length + 1]; //allocates an appr. size array for this children, the last index is what pit was chosen to move
-                    childBoard[currBoard.length] = i;
-                    copy(currBoard, childBoard); //copies the board
-                    //the curr player moves are always in the 0-5 position
-                    moveStonesChild(i, childBoard); //moves the child for the specific board being passes in, doesn't change the original board that is passed in
-                    allChildrenBoards.add(childBoard);
-                }
-            }
+     * Stop the AI search in progress, if any
+     */
+    public void cancelAI() {
+        aiSearchId++;
+        pendingAIMove = -1;
+        stopPondering();
+        stopAnalysis();
+        if (aiTask != null) {
+            aiTask.cancel(true);
+            aiTask = null;
         }
-
-        return allChildrenBoards;
     }
 
     /**
-     * Copies a to b
+     * Check whether the AI is working out its move
      *
-     * @param a - the original array
-     * @param b - the new array
-     * @return b
+     * @return true while a search is in progress
      */
-    public void copy(int[] a, int[] b) {
-        for (int i = 0; i < a.length; i++) {
-            b[i] = a[i];
-        }
+    public boolean isAIThinking() {
+        return aiTask != null;
     }
 
-
-    /*
-     * Returns value representing the goodness of the board for the current player
-     * positive/ high values are favorable for current player
-     * negative/ low values are unfavorable for current player
+    /**
+     * Stop the AI when the panel is removed or its window is closed
      */
-    public int heuristicStoneCompare(int[] board) {
-        int yourStones = 0;
-        for (int i = 0; i < 7; i++) {
-            if (i == 6) {
-                yourStones += board[i] * 2;
-            } else {
-                yourStones += board[i];
-            }
-        }
-        int enemyStones = 0;
-        for (int i = 7; i < 14; i++) {
-            if (i == 13) {
-                enemyStones += board[i] * 2;
-            } else {
-                enemyStones += board[i];
-            }
+    @Override
+    public void removeNotify() {
+        cancelAI();
+        animation.finish();
+        if (analysis != null) {
+            analysis.close();
         }
-        System.out.println(getCurrentPlayer() + " Player Stones: " + yourStones + ", Enemy Stones: " + enemyStones);
-        return yourStones - enemyStones;
+        super.removeNotify();
     }
 
     /**
-     * Draw the stones in the pits
+     * Draw the stones in the pits, skipping pits outside the area being repainted
      *
      * @param g frame Graphics object
      */
     protected void drawStones(Graphics g) {
         int cx, cy; // extra centering correction
+        Rectangle clip = g.getClipBounds();
 
-        for (int pit = 0; pit < pitStones.length; ++pit) {
-            if (pit == 6 || pit == 13) {
+        Geometry geometry = engine.getGeometry();
+
+        for (int pit = 0; pit < geometry.size; ++pit) {
+            if (clip != null && !clip.intersects(board.getPitBounds(pit))) {
+                continue;
+            }
+
+            if (board.isStore(pit)) {
                 cx = -3;
                 cy = 0;
-            } else if (pit > 9) {
+            } else if (pit > geometry.otherStore - 4) {
                 cx = 3;
                 cy = 6;
             } else {
@@ -415,19 +346,51 @@ class MancalaGame extends JPanel implements MouseListener {
                 cy = 9;
             }
 
-            g.drawString(Integer.toString(pitStones[pit]), board.getPitCenterX(pit) + cx, board.getPitCenterY(pit) + cy);
+            int stones = animation.isRunning() ? animation.getStones(pit) : engine.getStones(pit);
+            g.drawString(Integer.toString(stones), board.getPitCenterX(pit) + cx, board.getPitCenterY(pit) + cy);
+
+            if (pit < 6 && analysisLines[pit] != null && !animation.isRunning()) {
+                drawAnalysis(g, analysisLines[pit]);
+            }
         }
     }
 
+    /**
+     * Write a pit's score and depth across its top and the line expected to follow across its bottom
+     *
+     * @param g    frame Graphics object
+     * @param line the pit's latest line from the analysis
+     */
+    protected void drawAnalysis(Graphics g, Analysis.Line line) {
+        Color color = g.getColor();
+        boolean best = true;
+        for (Analysis.Line other : analysisLines) {
+            best &= other == null || other.score <= line.score;
+        }
+
+        StringBuilder pv = new StringBuilder();
+        for (int i = 1; i < Math.min(line.pv.length, 5); i++) {
+            pv.append(line.pv[i]).append(' ');
+        }
+
+        int x = board.getPitX(line.pit) + 8;
+        int y = board.getPitY(line.pit);
+        g.setColor(best ? Color.black : Color.gray);
+        g.drawString((line.score > 0 ? "+" : "") + line.score + "  d" + line.depth, x, y + 18);
+        g.drawString(pv.toString().trim(), x, y + board.pitHeight - 10);
+        g.setColor(color);
+    }
+
     /**
      * Paint information on the current player
      *
      * @param g Graphics object
      */
     protected void paintPlayerInfo(Graphics g) {
+        int winningPlayer = engine.getWinner();
 
-        if (winningPlayer < 0) {
-            g.drawString("Player " + getCurrentPlayer() + "'s turn", 20, 20);
+        if (winningPlayer < 0 || animation.isRunning()) {
+            g.drawString("Player " + getShownPlayer() + "'s turn", 20, 20);
         } else {
             if (winningPlayer == 0) {
                 g.drawString("Draw!", 20, 20);
@@ -438,7 +401,9 @@ class MancalaGame extends JPanel implements MouseListener {
     }
 
     /**
-     * Draw the board and stones on the screen
+     * Draw the board and stones on the screen.
+     * The pits and stores come from a cached image, and only the stones
+     * inside the area being repainted are drawn.
      *
      * @param g frame Graphics object
      */
@@ -446,8 +411,7 @@ class MancalaGame extends JPanel implements MouseListener {
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        g.setColor(Color.black);
-        board.drawBoard(g);
+        g.drawImage(board.getBoardImage(), 0, 0, null);
 
         g.setColor(Color.DARK_GRAY);
         drawStones(g);
@@ -457,79 +421,32 @@ class MancalaGame extends JPanel implements MouseListener {
 
     }
 
-    /**
-     * Check if either player has won the game
-     */
-    public boolean checkForWin() {
-        boolean topRowEmpty = true, bottomRowEmpty = true;
-        boolean returnBoolean = false;
-        // Check if the bottom row contains any stones
-        for (int i = 0; i < 6; ++i) {
-            if (pitStones[i] > 0) {
-                bottomRowEmpty = false;
-                break;
-            }
-        }
-
-        // Check if the top row contains any stones
-        for (int i = 7; i < 13; ++i) {
-            if (pitStones[i] > 0) {
-                topRowEmpty = false;
-                break;
-            }
-        }
-
-        // Take the stones from the non-empty row and add them to that player's store
-        if (topRowEmpty || bottomRowEmpty) {
-            returnBoolean = true;
-            if (topRowEmpty && !bottomRowEmpty) {
-                for (int i = 0; i < 6; ++i) {
-                    pitStones[6] += pitStones[i];
-                    pitStones[i] = 0;
-                }
-            } else if (!topRowEmpty && bottomRowEmpty) {
-                for (int i = 7; i < 13; ++i) {
-                    pitStones[13] += pitStones[i];
-                    pitStones[i] = 0;
-                }
-            }
-
-            // Determine which player holds the most stones
-            if (pitStones[6] > pitStones[13]) {
-                winningPlayer = getCurrentPlayer();
-            } else if (pitStones[6] < pitStones[13]) {
-                winningPlayer = getOtherPlayer();
-            } else {
-                // tie
-                winningPlayer = 0;
-            }
-
-            removeMouseListener(this);
-        }
-        return returnBoolean;
-
-    }
-
     /**
      * Perform a player's turn
      *
      * @param pit the pit selected by the player
      */
     public void doPlayerTurn(int pit) {
-        turnNumber++;
-        // perform the player's action
-        boolean result = moveStones(pit);
-//        System.out.println(result + " Player " + getCurrentPlayer() + " move");
+        int[] before = engine.getPits();
+        int player = engine.getCurrentPlayer();
+        stopAnalysis();
 
-        // make sure that a player hasn't run out of stones
-        checkForWin();
+        // perform the player's action, changing the player if the turn is ended
+        engine.applyMove(pit);
+        animation.start(before, pit, player, this::finishAnimation);
 
-        // change the player if the current turn is ended
-        if (!result && winningPlayer < 0) {
-            switchTurn();
-        } else if (AI && result && getCurrentPlayer() == 2) {
-            //if the AI is player 2 we want to go ahead and make another AI move
+        // make sure that a player hasn't run out of stones
+        if (engine.isGameOver()) {
+            removeMouseListener(this);
+            cancelAI();
+        } else if (AI && getCurrentPlayer() == 2) {
+            //if the AI is player 2 we want to go ahead and make the AI's move
             AILogic();
+        } else if (analysis != null) {
+            // the analysis takes the threads pondering would use
+            startAnalysis();
+        } else if (AI && PONDER) {
+            startPondering();
         }
     }
 
@@ -544,38 +461,24 @@ class MancalaGame extends JPanel implements MouseListener {
         int mx = e.getX();
         int my = e.getY();
 
+        // ignore clicks while the AI is moving or a move is being shown
+        if (isAIThinking() || animation.isRunning() || (AI && getCurrentPlayer() == 2)) {
+            return;
+        }
+
         // loop through all pits in the bottom row
-        for (int pit = 0; pit < 6; ++pit) {
+        for (int pit = 0; pit < engine.getGeometry().pits; ++pit) {
             x = board.getPitX(pit);
             y = board.getPitY(pit);
 
             // check if the click was inside the pit area.
-            if (mx > x && mx < x + board.pitWidth && my > y && my < y + board.pitHeight) {
+            if (mx > x && mx < x + board.pitWidth && my > y && my < y + board.pitHeight
+                    && engine.isLegalMove(pit)) {
                 doPlayerTurn(pit);
             }
         }
     }
 
-    public void printTheBoard() {
-        System.out.println("Mancala Turn " + turnNumber + ", Player: " + getCurrentPlayer());
-        System.out.print("  "); //spacing
-        //print out the top player
-        for (int i = 5; i >= 0; i--) {
-            System.out.print(pitStones[i] + " ");
-        }
-        System.out.println();
-
-        //print out the mancala pits
-        System.out.println(pitStones[6] + "             " + pitStones[13]);
-        System.out.print("  "); //Spacenig
-        //print out the bottom player
-        for (int i = 7; i < 13; i++) {
-            System.out.print(pitStones[i] + " ");
-        }
-
-        System.out.println("\n");
-    }
-
     @Override
     public void mouseEntered(MouseEvent e) {
     }
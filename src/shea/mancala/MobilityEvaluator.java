@@ -0,0 +1,23 @@
+package shea.mancala;
+
+/**
+ * Scores the stones on each side as seedsOnSide does, plus one for every
+ * pit a player could sow, as a player with few choices is easier to force.
+ */
+final class MobilityEvaluator implements Evaluator {
+
+    private final Evaluator stones;
+
+    MobilityEvaluator(int storeWeight) {
+        this.stones = Evaluator.seedsOnSide(storeWeight);
+    }
+
+    @Override
+    public int evaluate(int[] board) {
+        int score = stones.evaluate(board);
+        for (int i = 0; i < 6; i++) {
+            score += (board[i] > 0 ? 1 : 0) - (board[i + 7] > 0 ? 1 : 0);
+        }
+        return score;
+    }
+}
@@ -0,0 +1,487 @@
+package shea.mancala;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Monte Carlo tree search (UCT) for the AI's move, an alternative to the
+ * alpha-beta Search that needs no evaluator.
+ * Each iteration walks down the tree by the UCB1 formula, adds the
+ * children of the node it stops at, and plays the game out with random
+ * moves to the end. Unlike Search, playouts follow the real game: the
+ * board is swapped around whenever the turn passes, as MancalaEngine does.
+ * <p>
+ * Nodes live in arrays allocated once per tree, and playouts sow on one
+ * int[] board, so a search allocates nothing per iteration. With more than
+ * one thread each thread grows its own tree from the same board (root
+ * parallelism) and the root visits are added up at the end.
+ * Interrupting the calling thread, or a failing worker, stops every thread
+ * of the search.
+ */
+final class MonteCarloSearch {
+
+    /**
+     * Nodes each tree can hold; once full the tree stops growing but playouts go on
+     */
+    static final int DEFAULT_NODES = Integer.getInteger("mancala.mcts.nodes", 1 << 20);
+
+    /**
+     * How often the clock and the interrupt flag are checked, in playouts
+     */
+    private static final int CHECK_EVERY = 64;
+
+    private final Tree[] trees;
+
+    /**
+     * Grows every tree but the first, null with one thread
+     */
+    private final ExecutorService pool;
+
+    private final AtomicBoolean stop = new AtomicBoolean();
+
+    /**
+     * The UCB1 exploration constant
+     */
+    private volatile double exploration = Math.sqrt(2);
+
+    private int rootScore;
+
+    /**
+     * Create a search on the calling thread only, for the standard board
+     */
+    MonteCarloSearch() {
+        this(Geometry.STANDARD, 1, DEFAULT_NODES);
+    }
+
+    /**
+     * Create a search with a tree per thread
+     *
+     * @param geometry the size of the boards searched
+     * @param threads  how many threads to search with
+     * @param nodes    how many nodes each tree can hold
+     */
+    MonteCarloSearch(Geometry geometry, int threads, int nodes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        trees = new Tree[threads];
+        for (int i = 0; i < threads; i++) {
+            trees[i] = new Tree(geometry, nodes, 0x9E3779B97F4A7C15L * (i + 1));
+        }
+
+        pool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "mancala-mcts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a fixed number of playouts
+     *
+     * @param board    the board with the AI's pits first
+     * @param playouts how many games to play out, split between the threads
+     * @return the most visited move and the work done by all threads
+     */
+    SearchStats searchPlayouts(int[] board, long playouts) {
+        return search(board, playouts, 0);
+    }
+
+    /**
+     * Run playouts until the time is up
+     *
+     * @param board  the board with the AI's pits first
+     * @param millis how long the search may take
+     * @return the most visited move and the work done by all threads
+     */
+    SearchStats searchInTime(int[] board, long millis) {
+        return search(board, Long.MAX_VALUE, System.nanoTime() + millis * 1_000_000L);
+    }
+
+    private SearchStats search(int[] board, long playouts, long deadline) {
+        long started = System.nanoTime();
+        stop.set(false);
+        rootScore = 0;
+
+        for (Tree tree : trees) {
+            tree.reset();
+        }
+        if (trees[0].geometry.isGameOver(board)) {
+            return getStats(-1, System.nanoTime() - started);
+        }
+
+        long share = Math.max(1, playouts / trees.length);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 1; i < trees.length; i++) {
+            Tree tree = trees[i];
+            workers.add(pool.submit(() -> tree.grow(board, share, deadline, stop, exploration)));
+        }
+
+        trees[0].grow(board, share, deadline, stop, exploration);
+
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            // the trees must stop growing before they are read, or reset by the next search
+            stop.set(true);
+            awaitWorkers(workers);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            stop.set(true);
+            awaitWorkers(workers);
+            throw new IllegalStateException("search thread failed", e.getCause());
+        }
+
+        return getStats(bestMove(), System.nanoTime() - started);
+    }
+
+    /**
+     * Wait for every worker to finish, whatever it ended with. The workers
+     * see the stop flag within CHECK_EVERY playouts.
+     */
+    private static void awaitWorkers(List<Future<?>> workers) {
+        boolean interrupted = false;
+        for (Future<?> worker : workers) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add up the root's children over every tree and pick the most visited pit
+     */
+    private int bestMove() {
+        long[] visits = new long[Geometry.MAX_PITS];
+        double[] wins = new double[Geometry.MAX_PITS];
+
+        for (Tree tree : trees) {
+            for (int child = tree.first[0]; child >= 0 && child < tree.first[0] + tree.count[0]; child++) {
+                visits[tree.pit[child]] += tree.visits[child];
+                wins[tree.pit[child]] += tree.wins[child];
+            }
+        }
+
+        int move = -1;
+        for (int pit = 0; pit < visits.length; pit++) {
+            if (visits[pit] > 0 && (move < 0 || visits[pit] > visits[move])) {
+                move = pit;
+            }
+        }
+
+        if (move >= 0) {
+            rootScore = (int) Math.round(1000 * wins[move] / visits[move]);
+        }
+        return move;
+    }
+
+    /**
+     * Add up the counters of every thread. The nodes are plies played in the
+     * tree and in playouts, the leaves are playouts and the depth is the
+     * deepest the tree grew.
+     */
+    private SearchStats getStats(int move, long elapsedNanos) {
+        long nodes = 0, playouts = 0;
+        int depth = 0, maxDepth = 0;
+
+        for (Tree tree : trees) {
+            nodes += tree.plies;
+            playouts += tree.playouts;
+            depth = Math.max(depth, tree.depth);
+            maxDepth = Math.max(maxDepth, tree.maxPly);
+        }
+
+        return new SearchStats(move, rootScore, depth, maxDepth, nodes, playouts, 0, elapsedNanos);
+    }
+
+    /**
+     * Retrieve the score of the move found by the last search
+     *
+     * @return the AI's share of the points in the playouts through the move, in thousandths
+     */
+    int getScore() {
+        return rootScore;
+    }
+
+    /**
+     * Choose how much the search tries moves it has visited less
+     *
+     * @param exploration the UCB1 constant, the square root of 2 by default
+     */
+    void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * Stop the search threads
+     */
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * One thread's tree. A node's children sit next to each other from
+     * first[node], so a node is just an index into the arrays.
+     */
+    private static final class Tree {
+
+        /**
+         * Longest line the tree is walked down before a playout takes over
+         */
+        private static final int MAX_PATH = 256;
+
+        /**
+         * Index of the first child, or -1 if the node has not been expanded
+         */
+        final int[] first;
+
+        /**
+         * How many children the node has, 0 once expanded if the game is over there
+         */
+        final byte[] count;
+
+        /**
+         * The pit played to reach the node
+         */
+        final byte[] pit;
+
+        /**
+         * Whether the AI made the move that reached the node
+         */
+        final boolean[] aiMoved;
+
+        final int[] visits;
+
+        /**
+         * Points won in playouts through the node, 1 per win and 0.5 per tie,
+         * for the player who made the move that reached it
+         */
+        final float[] wins;
+
+        private int size;
+
+        final Geometry geometry;
+        private final int[] board;
+        private final int[] path = new int[MAX_PATH];
+        private long random;
+
+        long plies, playouts;
+        int depth, maxPly;
+
+        Tree(Geometry geometry, int nodes, long seed) {
+            this.geometry = geometry;
+            board = new int[geometry.size];
+            first = new int[nodes];
+            count = new byte[nodes];
+            pit = new byte[nodes];
+            aiMoved = new boolean[nodes];
+            visits = new int[nodes];
+            wins = new float[nodes];
+            random = seed;
+        }
+
+        /**
+         * Empty the tree and the counters
+         */
+        void reset() {
+            size = 1;
+            first[0] = -1;
+            count[0] = 0;
+            visits[0] = 0;
+            wins[0] = 0;
+            plies = 0;
+            playouts = 0;
+            depth = 0;
+            maxPly = 0;
+        }
+
+        /**
+         * Run playouts until the budget or the time is used up or the search is stopped
+         */
+        void grow(int[] root, long budget, long deadline, AtomicBoolean stop, double exploration) {
+            while (playouts < budget && !stop.get()) {
+                iterate(root, exploration);
+
+                if (playouts % CHECK_EVERY == 0) {
+                    if (Thread.currentThread().isInterrupted()
+                            || (deadline != 0 && System.nanoTime() >= deadline)) {
+                        stop.set(true);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Walk down, expand, play out and back up once
+         */
+        private void iterate(int[] root, double exploration) {
+            System.arraycopy(root, 0, board, 0, board.length);
+            boolean aiToMove = true;
+            int node = 0, length = 0;
+            path[0] = 0;
+
+            while (first[node] >= 0 && count[node] > 0 && length + 1 < MAX_PATH) {
+                node = select(node, exploration);
+                aiToMove = play(pit[node], aiToMove);
+                path[++length] = node;
+            }
+
+            // a node is expanded on its second visit, the root on its first
+            if (first[node] < 0 && (node == 0 || visits[node] > 0) && length + 1 < MAX_PATH && expand(node, aiToMove)) {
+                if (count[node] > 0) {
+                    node = first[node] + next(count[node]);
+                    aiToMove = play(pit[node], aiToMove);
+                    path[++length] = node;
+                }
+            }
+            depth = Math.max(depth, length);
+
+            float result = playout(aiToMove, length);
+            for (int i = 0; i <= length; i++) {
+                int n = path[i];
+                visits[n]++;
+                wins[n] += aiMoved[n] ? result : 1 - result;
+            }
+            playouts++;
+        }
+
+        /**
+         * Pick the child with the highest upper confidence bound, an unvisited one first
+         */
+        private int select(int node, double exploration) {
+            double logVisits = Math.log(visits[node]);
+            int best = first[node];
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for (int child = first[node], end = child + count[node]; child < end; child++) {
+                if (visits[child] == 0) {
+                    return child;
+                }
+
+                double value = wins[child] / visits[child] + exploration * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * Add a child for every legal move of the board reached
+         *
+         * @return false if the tree is full
+         */
+        private boolean expand(int node, boolean aiToMove) {
+            if (size + geometry.pits > first.length) {
+                return false;
+            }
+
+            first[node] = size;
+            count[node] = 0;
+            if (geometry.isGameOver(board)) {
+                return true;
+            }
+
+            for (int p = 0; p < geometry.pits; p++) {
+                if (board[p] > 0) {
+                    first[size] = -1;
+                    count[size] = 0;
+                    pit[size] = (byte) p;
+                    aiMoved[size] = aiToMove;
+                    visits[size] = 0;
+                    wins[size] = 0;
+                    size++;
+                    count[node]++;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sow a pit of the board, laying it out for the other player if the turn passes
+         *
+         * @return whether the AI moves next
+         */
+        private boolean play(int p, boolean aiToMove) {
+            plies++;
+            if (geometry.sow(p, board)) {
+                return aiToMove;
+            }
+
+            geometry.swapSides(board);
+            return !aiToMove;
+        }
+
+        /**
+         * Play random moves to the end of the game
+         *
+         * @param ply how many plies from the root the playout starts
+         * @return the AI's points: 1 for a win, 0.5 for a tie, 0 for a loss
+         */
+        private float playout(boolean aiToMove, int ply) {
+            int pits = geometry.pits, store = geometry.store;
+            while (!geometry.isGameOver(board)) {
+                int legal = 0;
+                for (int p = 0; p < pits; p++) {
+                    if (board[p] > 0) {
+                        legal++;
+                    }
+                }
+
+                int choice = next(legal);
+                int p = 0;
+                while (board[p] == 0 || choice-- > 0) {
+                    p++;
+                }
+
+                aiToMove = play(p, aiToMove);
+                ply++;
+            }
+            maxPly = Math.max(maxPly, ply);
+
+            // the stones left on each row go to that row's owner
+            int difference = board[store] - board[geometry.otherStore];
+            for (int p = 0; p < pits; p++) {
+                difference += board[p] - board[p + store + 1];
+            }
+            if (!aiToMove) {
+                difference = -difference;
+            }
+
+            return difference > 0 ? 1 : difference < 0 ? 0 : 0.5f;
+        }
+
+        /**
+         * Draw a number from 0 up to a bound with xorshift, so playouts share no state
+         */
+        private int next(int bound) {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return (int) ((random >>> 33) * bound >>> 31);
+        }
+    }
+}
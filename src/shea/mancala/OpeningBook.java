@@ -0,0 +1,194 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Moves for the first plies of a game, searched deeply ahead of time by
+ * OpeningBookBuilder.
+ * <p>
+ * The file starts with a header: the int 0x4D4F424B ("MOBK"), the format
+ * VERSION, the Search.VERSION and the fingerprint of the evaluator the
+ * book was searched with (long), and the entry count. The entries follow,
+ * sorted by key. Each entry is the board's Zobrist hash (long),
+ * the score (short), the pit to move (byte) and the search depth (byte).
+ * Boards are laid out for the player to move, so the hash needs no side.
+ * The file is memory-mapped and looked up by binary search.
+ */
+final class OpeningBook {
+
+    static final int MAGIC = 0x4D4F424B;
+
+    /**
+     * The layout of the file, 2 since it records how the book was searched
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Bytes before the first entry
+     */
+    static final int HEADER = 24;
+
+    /**
+     * Bytes per entry
+     */
+    static final int ENTRY = 12;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    /**
+     * The Search.VERSION and evaluator fingerprint the book was searched with
+     */
+    private final int searchVersion;
+    private final long evaluator;
+
+    private OpeningBook(ByteBuffer entries, int size, int searchVersion, long evaluator) {
+        this.entries = entries;
+        this.size = size;
+        this.searchVersion = searchVersion;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Map a book file into memory
+     *
+     * @param path the file written by OpeningBookBuilder
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (entries.limit() < 8 || entries.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not an opening book");
+            }
+            if (entries.getInt(4) != VERSION || entries.limit() < HEADER) {
+                throw new IOException(path + " was written by another version of OpeningBookBuilder, rebuild it");
+            }
+
+            int size = entries.getInt(20);
+            if (size < 0 || entries.limit() != HEADER + (long) size * ENTRY) {
+                throw new IOException(path + " is truncated or corrupt");
+            }
+
+            return new OpeningBook(entries, size, entries.getInt(8), entries.getLong(12));
+        }
+    }
+
+    /**
+     * Open the book named by the mancala.book system property, which must
+     * have been searched by this version of Search with the evaluator the AI
+     * plays with, Evaluator.fromProperties()
+     *
+     * @return the book, or null if the property is not set
+     * @throws IllegalStateException if the file cannot be opened or its moves are stale
+     */
+    static OpeningBook openDefault() {
+        String path = System.getProperty("mancala.book");
+        if (path == null) {
+            return null;
+        }
+
+        OpeningBook book;
+        try {
+            book = open(Paths.get(path));
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open opening book " + path, e);
+        }
+
+        if (book.searchVersion != Search.VERSION) {
+            throw new IllegalStateException("opening book " + path + " was searched by search version "
+                    + book.searchVersion + ", not " + Search.VERSION + "; rebuild it");
+        }
+        if (!book.isSearchedWith(Evaluator.fromProperties())) {
+            throw new IllegalStateException("opening book " + path
+                    + " was searched with other evaluation weights than mancala.weights gives; rebuild it");
+        }
+        return book;
+    }
+
+    /**
+     * Write the header of a book
+     *
+     * @param buffer    the buffer to fill, at the start of the file
+     * @param evaluator the evaluator the book was searched with
+     * @param size      the entry count
+     */
+    static void putHeader(ByteBuffer buffer, Evaluator evaluator, int size) {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(Search.VERSION).putLong(fingerprint(evaluator)).putInt(size);
+    }
+
+    /**
+     * Check whether the book's moves were searched with an evaluator
+     *
+     * @param evaluator the evaluator the AI plays with
+     * @return true if it scores boards the same as the book's
+     */
+    boolean isSearchedWith(Evaluator evaluator) {
+        return fingerprint(evaluator) == this.evaluator;
+    }
+
+    /**
+     * Sum up how an evaluator scores the boards in Positions, so two
+     * evaluators with different weights are all but sure to differ
+     */
+    private static long fingerprint(Evaluator evaluator) {
+        long hash = 1;
+        for (int[] board : Positions.all()) {
+            hash = hash * 0x9E3779B97F4A7C15L + evaluator.evaluate(board);
+        }
+        return hash;
+    }
+
+    /**
+     * Look up the move for a board
+     *
+     * @param board the board with the player to move in pits 0-5
+     * @return the book move with no search work, or null if the board is not in the book
+     */
+    SearchStats lookup(int[] board) {
+        long started = System.nanoTime();
+        long key = Zobrist.hash(board);
+        int low = 0, high = size - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER + middle * ENTRY;
+            long found = entries.getLong(offset);
+
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                int move = entries.get(offset + 10);
+
+                // a board sharing the hash of a book board may not have that pit to play
+                if (move < 0 || move > 5 || board[move] == 0) {
+                    return null;
+                }
+
+                int depth = entries.get(offset + 11);
+                return new SearchStats(move, entries.getShort(offset + 8), depth, depth,
+                        0, 0, 0, System.nanoTime() - started);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieve how many boards the book holds
+     *
+     * @return the entry count
+     */
+    int size() {
+        return size;
+    }
+}
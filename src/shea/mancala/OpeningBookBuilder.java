@@ -0,0 +1,141 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Build an OpeningBook by searching every board reachable in the first
+ * plies of a game with the parallel search.
+ * A ply is one sowing, so an extra turn counts as a ply of its own.
+ * The boards are scored with Evaluator.fromProperties(), so a book for
+ * tuned weights is built with the same mancala.weights as the game.
+ * <p>
+ * Usage: OpeningBookBuilder [plies, default 4] [depth, default 14] [file, default book.bin] [threads]
+ */
+public class OpeningBookBuilder {
+
+    /**
+     * Build a book and write it to a file
+     *
+     * @param args the plies, the search depth, the file and the thread count
+     */
+    public static void main(String[] args) throws IOException {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+        Path path = Paths.get(args.length > 2 ? args[2] : "book.bin");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : ParallelSearch.DEFAULT_THREADS;
+
+        long start = System.nanoTime();
+        List<int[]> boards = openings(plies);
+        System.out.printf("%d boards within %d plies, searching to depth %d on %d threads%n",
+                boards.size(), plies, depth, threads);
+
+        // searched with the weights the AI plays with, which the header records
+        Evaluator evaluator = Evaluator.fromProperties();
+        ParallelSearch search = new ParallelSearch(threads);
+        search.setEvaluator(evaluator);
+        ByteBuffer entries = ByteBuffer.allocate(OpeningBook.HEADER + boards.size() * OpeningBook.ENTRY);
+        long[] keys = new long[boards.size()];
+        SearchStats[] results = new SearchStats[boards.size()];
+
+        try {
+            for (int i = 0; i < boards.size(); i++) {
+                keys[i] = Zobrist.hash(boards.get(i));
+                results[i] = search.searchDepth(boards.get(i), depth);
+
+                if ((i + 1) % 100 == 0) {
+                    System.out.printf("%d / %d boards, %.0f s%n", i + 1, boards.size(),
+                            (System.nanoTime() - start) / 1e9);
+                }
+            }
+        } finally {
+            search.shutdown();
+        }
+
+        // sort the entries by key for binary search
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        OpeningBook.putHeader(entries, evaluator, keys.length);
+        for (int i : order) {
+            entries.putLong(keys[i])
+                    .putShort((short) results[i].score)
+                    .put((byte) results[i].move)
+                    .put((byte) results[i].depth);
+        }
+        entries.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (entries.hasRemaining()) {
+                channel.write(entries);
+            }
+        }
+
+        System.out.printf("%d boards written to %s in %.1f s%n", keys.length, path,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * List every board the player to move can face in the first plies,
+     * each board once
+     *
+     * @param plies how many sowings from the start to go
+     * @return the boards laid out for the player to move, games already over left out
+     */
+    static List<int[]> openings(int plies) {
+        List<int[]> boards = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        List<int[]> frontier = new ArrayList<>();
+
+        frontier.add(MancalaEngine.START.clone());
+        seen.add(Zobrist.hash(MancalaEngine.START));
+
+        for (int ply = 0; ply <= plies && !frontier.isEmpty(); ply++) {
+            boards.addAll(frontier);
+
+            List<int[]> next = new ArrayList<>();
+            for (int[] board : frontier) {
+                for (int pit = 0; pit < 6 && ply < plies; pit++) {
+                    if (board[pit] == 0) {
+                        continue;
+                    }
+
+                    int[] child = board.clone();
+                    if (!Rules.sow(pit, child)) {
+                        child = swapSides(child);
+                    }
+
+                    if (!Rules.isGameOver(child) && seen.add(Zobrist.hash(child))) {
+                        next.add(child);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        return boards;
+    }
+
+    /**
+     * Lay a board out for the other player, as MancalaEngine does when the turn passes
+     */
+    private static int[] swapSides(int[] board) {
+        int[] swapped = new int[14];
+        System.arraycopy(board, 7, swapped, 0, 7);
+        System.arraycopy(board, 0, swapped, 7, 7);
+        return swapped;
+    }
+}
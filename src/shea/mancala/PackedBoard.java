@@ -0,0 +1,195 @@
+package shea.mancala;
+
+import java.util.Arrays;
+
+/**
+ * An immutable board packed into two longs, six bits per pit.
+ * Pits 0-6 are held in the low word and pits 7-13 in the high word,
+ * which is plenty for the 48 stones in a game, at most MAX_STONES a pit.
+ * Perft counts moves on it beside Rules.sow; the search keeps its boards
+ * in int[] plies, which it changes in place without allocating.
+ */
+final class PackedBoard {
+
+    private static final int BITS = 6;
+    private static final long PIT_MASK = (1L << BITS) - 1;
+
+    /**
+     * The most stones a pit can hold
+     */
+    static final int MAX_STONES = (int) PIT_MASK;
+
+    /**
+     * Covers the six pits of a row, leaving out the store
+     */
+    private static final long ROW_MASK = (1L << (6 * BITS)) - 1;
+
+    /**
+     * One stone in each of pits 1-6 and 7-12, added per full lap of sowing
+     */
+    private static final long LAP_LOW, LAP_HIGH;
+
+    /**
+     * REST_LOW[pit][rest] and REST_HIGH[pit][rest] add one stone to each of
+     * the rest pits following a pit, wrapping from pit 12 to pit 1
+     */
+    private static final long[][] REST_LOW = new long[13][Rules.LAP];
+    private static final long[][] REST_HIGH = new long[13][Rules.LAP];
+
+    static {
+        long low = 0, high = 0;
+        for (int pit = 1; pit <= 12; pit++) {
+            if (pit < 7) {
+                low += 1L << (pit * BITS);
+            } else {
+                high += 1L << ((pit - 7) * BITS);
+            }
+        }
+        LAP_LOW = low;
+        LAP_HIGH = high;
+
+        for (int pit = 0; pit < 13; pit++) {
+            int pointer = pit;
+            for (int rest = 1; rest < Rules.LAP; rest++) {
+                pointer = pointer == 12 ? 1 : pointer + 1;
+                REST_LOW[pit][rest] = REST_LOW[pit][rest - 1] + (pointer < 7 ? 1L << (pointer * BITS) : 0);
+                REST_HIGH[pit][rest] = REST_HIGH[pit][rest - 1] + (pointer < 7 ? 0 : 1L << ((pointer - 7) * BITS));
+            }
+        }
+    }
+
+    final long low, high;
+
+    PackedBoard(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Pack a board
+     *
+     * @param board the first 14 entries are used
+     * @return the packed board
+     */
+    static PackedBoard of(int[] board) {
+        long low = 0, high = 0;
+        for (int i = 0; i < 7; i++) {
+            low |= (long) board[i] << (i * BITS);
+            high |= (long) board[i + 7] << (i * BITS);
+        }
+        return new PackedBoard(low, high);
+    }
+
+    /**
+     * Unpack into a new array of 14 pits
+     *
+     * @return the board as used by MancalaGame
+     */
+    int[] toArray() {
+        int[] board = new int[14];
+        for (int i = 0; i < 14; i++) {
+            board[i] = get(i);
+        }
+        return board;
+    }
+
+    /**
+     * Retrieve the stones in a pit
+     *
+     * @param pit a pit number
+     * @return the amount of stones
+     */
+    int get(int pit) {
+        return pit < 7
+                ? (int) (low >>> (pit * BITS) & PIT_MASK)
+                : (int) (high >>> ((pit - 7) * BITS) & PIT_MASK);
+    }
+
+    /**
+     * Sow a pit following the same rules as Rules.sow
+     *
+     * @param pit the pit to empty
+     * @return the board after the move
+     */
+    PackedBoard sow(int pit) {
+        int stones = get(pit);
+        if (stones < 1) {
+            return this;
+        }
+
+        long low = this.low, high = this.high;
+        if (pit < 7) {
+            low &= ~(PIT_MASK << (pit * BITS));
+        } else {
+            high &= ~(PIT_MASK << ((pit - 7) * BITS));
+        }
+
+        // add the full laps and the stones left over in one go each
+        int laps = stones / Rules.LAP;
+        int rest = stones - laps * Rules.LAP;
+        low += laps * LAP_LOW + REST_LOW[pit][rest];
+        high += laps * LAP_HIGH + REST_HIGH[pit][rest];
+        int pointer = Rules.lastPit(pit, stones);
+
+        // capture the opposite pit when the last stone lands in an empty pit of our row
+        if (pointer < 6 && (low >>> (pointer * BITS) & PIT_MASK) == 1) {
+            int shift = (12 - pointer - 7) * BITS;
+            long captured = high >>> shift & PIT_MASK;
+            if (captured > 0) {
+                low &= ~(PIT_MASK << (pointer * BITS));
+                high &= ~(PIT_MASK << shift);
+                low += (captured + 1) << (6 * BITS);
+            }
+        }
+
+        return new PackedBoard(low, high);
+    }
+
+    /**
+     * Check whether sowing a pit gives another turn
+     *
+     * @param pit the pit to sow
+     * @return the same value as Rules.sow returns for this pit
+     */
+    boolean isExtraTurn(int pit) {
+        int stones = get(pit);
+        return stones < 1 || Rules.lastPit(pit, stones) == 6;
+    }
+
+    /**
+     * Lay the board out for the other player, as MancalaEngine does when the turn passes
+     *
+     * @return the board with the rows and stores swapped
+     */
+    PackedBoard swapSides() {
+        return new PackedBoard(high, low);
+    }
+
+    /**
+     * Check whether either row is empty
+     *
+     * @return true if the game is over
+     */
+    boolean isGameOver() {
+        return (low & ROW_MASK) == 0 || (high & ROW_MASK) == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PackedBoard)) {
+            return false;
+        }
+        PackedBoard other = (PackedBoard) o;
+        return low == other.low && high == other.high;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low * 0x9E3779B97F4A7C15L ^ high);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,388 @@
+package shea.mancala;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Alpha-beta search that splits the AI's moves between threads.
+ * The first move is searched alone to get a score to beat (young brothers
+ * wait), then the remaining moves are searched at the same time on a
+ * ForkJoinPool, all threads sharing one transposition table.
+ * At a fixed depth it returns the same move and score as Search.
+ * Interrupting the calling thread, or a failing worker, stops every thread
+ * of the search.
+ */
+final class ParallelSearch {
+
+    /**
+     * Thread count used when none is given
+     */
+    static final int DEFAULT_THREADS = Integer.getInteger("mancala.ai.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Returned by a worker that ran out of time or was stopped
+     */
+    private static final int ABORTED = Integer.MIN_VALUE;
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+
+    /**
+     * Searches the first move on the calling thread
+     */
+    private final Search main;
+
+    /**
+     * Searches not in use by a pool thread. Each task takes one and gives it
+     * back, so there are never more than the tasks that ran at once, however
+     * often the pool replaces its idle threads.
+     */
+    private final ConcurrentLinkedQueue<Search> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Every search created, for adding up their counters
+     */
+    private final List<Search> searches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Stops the pool threads when the calling thread is interrupted
+     */
+    private final AtomicBoolean stop = new AtomicBoolean();
+
+    /**
+     * Given to every thread's search, null if there is none
+     */
+    private volatile EndgameTable endgame;
+
+    /**
+     * How every thread searches below the root
+     */
+    private volatile Evaluator evaluator = Evaluator.seedsOnSide(2);
+
+    private volatile Search.Algorithm algorithm = belowRoot(Search.DEFAULT_ALGORITHM);
+
+    private int rootScore;
+    private int rootDepth;
+    private boolean aborted;
+
+    /**
+     * Create a search with its own table
+     *
+     * @param threads how many threads to search with
+     */
+    ParallelSearch(int threads) {
+        this(threads, new TranspositionTable());
+    }
+
+    /**
+     * Create a search using a given table
+     *
+     * @param threads how many threads to search with
+     * @param table   the transposition table shared by all threads
+     */
+    ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        this.pool = new ForkJoinPool(threads);
+        this.table = table;
+        this.main = new Search(table, stop);
+        this.main.setAlgorithm(algorithm);
+        this.searches.add(main);
+    }
+
+    /**
+     * Take an idle search for a pool task, creating one if all are in use
+     */
+    private Search takeWorker() {
+        Search search = idle.poll();
+        if (search == null) {
+            search = new Search(table, stop);
+            search.setEndgameTable(endgame);
+            search.setAlgorithm(algorithm);
+            search.setEvaluator(evaluator);
+            searches.add(search);
+        }
+        return search;
+    }
+
+    /**
+     * Find the AI's move for a board
+     *
+     * @param board the board with the AI's pits in 0-5
+     * @param depth how many plies to search
+     * @return the pit to move, or -1 if there is no move
+     */
+    int bestMove(int[] board, int depth) {
+        return searchDepth(board, depth).move;
+    }
+
+    /**
+     * Search a board to a fixed depth
+     *
+     * @param board the board with the AI's pits in 0-5
+     * @param depth how many plies to search
+     * @return the move found and the work done by all threads
+     */
+    SearchStats searchDepth(int[] board, int depth) {
+        return searchDepth(board, depth, true);
+    }
+
+    /**
+     * Search a board to a fixed depth, as one of a series of searches
+     * filling the table together
+     *
+     * @param board     the board with the AI's pits in 0-5
+     * @param depth     how many plies to search
+     * @param newSearch whether to start a new table generation, false to
+     *                  keep the entries of the series as recent as this search's
+     * @return the move found and the work done by all threads
+     */
+    SearchStats searchDepth(int[] board, int depth, boolean newSearch) {
+        long started = System.nanoTime();
+        start(newSearch);
+
+        int move = -1;
+        if (!Rules.isGameOver(board) && depth >= 1) {
+            rootDepth = depth;
+            move = searchRoot(board, depth, -1, 0);
+        }
+
+        return getStats(move, System.nanoTime() - started);
+    }
+
+    /**
+     * Find the AI's move by iterative deepening until the time is up
+     *
+     * @param board  the board with the AI's pits in 0-5
+     * @param millis how long the search may take
+     * @return the move of the last fully searched depth, or -1 if there is no move
+     */
+    int bestMoveInTime(int[] board, long millis) {
+        return searchInTime(board, millis).move;
+    }
+
+    /**
+     * Search by iterative deepening until the time is up
+     *
+     * @param board  the board with the AI's pits in 0-5
+     * @param millis how long the search may take
+     * @return the move of the last fully searched depth and the work done by all threads
+     */
+    SearchStats searchInTime(int[] board, long millis) {
+        long started = System.nanoTime();
+        start(true);
+
+        if (Rules.isGameOver(board)) {
+            return getStats(-1, System.nanoTime() - started);
+        }
+
+        long deadline = started + millis * 1_000_000L;
+        int move = -1, score = 0, depth = 0;
+
+        for (int d = 1; d <= Search.MAX_DEPTH; d++) {
+            int found = searchRoot(board, d, move, d > 1 ? deadline : 0);
+
+            if (aborted) {
+                break;
+            }
+
+            move = found;
+            score = rootScore;
+            depth = d;
+        }
+
+        rootScore = score;
+        rootDepth = depth;
+        return getStats(move, System.nanoTime() - started);
+    }
+
+    /**
+     * Prepare the table and counters for a new search
+     *
+     * @param newSearch whether to start a new table generation
+     */
+    private void start(boolean newSearch) {
+        if (newSearch) {
+            table.newSearch();
+        }
+        stop.set(false);
+        rootScore = 0;
+        rootDepth = 0;
+        for (Search search : searches) {
+            search.resetStats();
+        }
+    }
+
+    /**
+     * Add up the counters of every thread
+     */
+    private SearchStats getStats(int move, long elapsedNanos) {
+        long nodes = 0, leaves = 0, cutoffs = 0;
+        int maxDepth = 0;
+
+        for (Search search : searches) {
+            nodes += search.getNodes();
+            leaves += search.getLeaves();
+            cutoffs += search.getCutoffs();
+            maxDepth = Math.max(maxDepth, search.getMaxPly());
+        }
+
+        return new SearchStats(move, rootScore, rootDepth, maxDepth, nodes, leaves, cutoffs, elapsedNanos);
+    }
+
+    /**
+     * Search every AI move to a given depth, the first one before the rest
+     */
+    private int searchRoot(int[] board, int depth, int firstMove, long deadline) {
+        aborted = false;
+
+        int[] moves = new int[6];
+        int count = 0;
+        if (firstMove >= 0) {
+            moves[count++] = firstMove;
+        }
+        for (int pit = 0; pit < 6; pit++) {
+            if (board[pit] > 0 && pit != firstMove) {
+                moves[count++] = pit;
+            }
+        }
+
+        int best = main.searchMove(board, moves[0], depth, -Search.INFINITY, Search.INFINITY, deadline);
+        int bestMove = moves[0];
+
+        if (main.isAborted()) {
+            aborted = true;
+            return -1;
+        }
+
+        // the younger brothers only need to show whether they beat the first move
+        final int alpha = best;
+        List<ForkJoinTask<Integer>> results = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            final int pit = moves[i];
+            results.add(pool.submit(() -> {
+                Search search = takeWorker();
+                try {
+                    int score = search.searchMove(board, pit, depth, alpha, Search.INFINITY, deadline);
+                    return search.isAborted() ? ABORTED : score;
+                } finally {
+                    idle.add(search);
+                }
+            }));
+        }
+
+        try {
+            // get, unlike invokeAll, gives up waiting when the calling thread is interrupted
+            for (int i = 0; i < results.size(); i++) {
+                int score = results.get(i).get();
+
+                if (score == ABORTED) {
+                    aborted = true;
+                } else if (score > best) {
+                    best = score;
+                    bestMove = moves[i + 1];
+                }
+            }
+        } catch (InterruptedException e) {
+            stop.set(true);
+            aborted = true;
+
+            // the workers see the flag within a few thousand nodes; wait so none outlives this search
+            for (ForkJoinTask<Integer> result : results) {
+                result.quietlyJoin();
+            }
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // stop the other workers too, or they run on into the next search
+            stop.set(true);
+            for (ForkJoinTask<Integer> result : results) {
+                result.quietlyJoin();
+            }
+            throw new IllegalStateException("search thread failed", e.getCause());
+        }
+
+        rootScore = best;
+        return bestMove;
+    }
+
+    /**
+     * Retrieve the score of the move found by the last search
+     *
+     * @return the heuristic score for the AI
+     */
+    int getScore() {
+        return rootScore;
+    }
+
+    /**
+     * Retrieve the depth the last search completed
+     *
+     * @return the depth of the returned move
+     */
+    int getDepth() {
+        return rootDepth;
+    }
+
+    /**
+     * Look up boards with few stones left instead of searching them
+     *
+     * @param endgame the table every thread probes, or null to search every board
+     */
+    void setEndgameTable(EndgameTable endgame) {
+        this.endgame = endgame;
+        for (Search search : searches) {
+            search.setEndgameTable(endgame);
+        }
+    }
+
+    /**
+     * Choose how each thread searches its moves, see Search.setAlgorithm
+     *
+     * @param algorithm the algorithm every thread uses
+     */
+    void setAlgorithm(Search.Algorithm algorithm) {
+        this.algorithm = belowRoot(algorithm);
+        for (Search search : searches) {
+            search.setAlgorithm(this.algorithm);
+        }
+    }
+
+    /**
+     * Choose how every thread scores the leaves
+     *
+     * @param evaluator the evaluator, shared by all threads
+     */
+    void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        for (Search search : searches) {
+            search.setEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * MTD(f) only changes how the root is searched, which is split here instead
+     */
+    private static Search.Algorithm belowRoot(Search.Algorithm algorithm) {
+        return algorithm == Search.Algorithm.MTDF ? Search.Algorithm.PVS : algorithm;
+    }
+
+    TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Stop the search threads
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,324 @@
+package shea.mancala;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Count the boards reachable in exactly some number of plies, to check
+ * that moves are generated correctly and to time generating them.
+ * A ply is one sowing, so an extra turn counts as a ply of its own, and
+ * a game that ends early is not counted at the deeper plies.
+ * Boards are laid out for the player to move, swapping sides when the turn
+ * passes as MancalaEngine does.
+ * <p>
+ * Every count is made with both Rules.sow on arrays and PackedBoard.sow,
+ * which must agree. With --check the counts from the starting layout are
+ * compared against START_COUNTS as well, exiting with status 1 on any
+ * difference.
+ * <p>
+ * Usage: Perft [--depth N] [--divide] [--threads N] [--board p0,...,p13] [--check]
+ */
+public class Perft {
+
+    /**
+     * START_COUNTS[d] boards are reached in d plies from the starting layout
+     */
+    static final long[] START_COUNTS = {
+            1L, 6L, 35L, 185L, 942L, 4_690L, 23_233L, 114_429L, 563_102L,
+            2_765_004L, 13_532_901L, 65_931_591L, 318_874_947L,
+    };
+
+    /**
+     * Ply to split the tree at for the parallel count
+     */
+    private static final int SPLIT = 3;
+
+    private static final String USAGE =
+            "usage: Perft [--depth N] [--divide] [--threads N] [--board p0,...,p13] [--check]";
+
+    /**
+     * Run the counts
+     *
+     * @param args see the class description
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int depth = 10;
+        boolean divide = false, check = false;
+        int threads = ParallelSearch.DEFAULT_THREADS;
+        int[] board = MancalaEngine.START.clone();
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--depth":
+                    depth = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--board":
+                    board = parseBoard(value);
+                    i++;
+                    break;
+                case "--check":
+                    check = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        if (check) {
+            System.exit(check(Math.min(depth, START_COUNTS.length - 1), threads) ? 0 : 1);
+        }
+
+        if (divide) {
+            divide(board, depth);
+        }
+        run(board, depth, threads);
+    }
+
+    /**
+     * Read the board given to --board. PackedBoard holds at most
+     * PackedBoard.MAX_STONES stones a pit, and a store can end up with all
+     * of them, so that is also the most stones a board may have in all.
+     *
+     * @param value the stones in pits 0-13, separated by commas
+     * @return the board
+     * @throws IllegalArgumentException if the board cannot be counted
+     */
+    private static int[] parseBoard(String value) {
+        String[] pits = value.split(",");
+        if (pits.length != 14) {
+            throw new IllegalArgumentException(USAGE + "; --board takes 14 pits, not " + pits.length);
+        }
+
+        int[] board = new int[14];
+        int total = 0;
+        for (int pit = 0; pit < 14; pit++) {
+            board[pit] = Integer.parseInt(pits[pit].trim());
+            if (board[pit] < 0) {
+                throw new IllegalArgumentException(USAGE + "; pit " + pit + " has " + board[pit] + " stones");
+            }
+            total += board[pit];
+        }
+
+        if (total > PackedBoard.MAX_STONES) {
+            throw new IllegalArgumentException(USAGE + "; --board may hold at most "
+                    + PackedBoard.MAX_STONES + " stones, not " + total);
+        }
+        return board;
+    }
+
+    /**
+     * Count from the starting layout to each depth and compare with START_COUNTS
+     *
+     * @return true if every count matched
+     */
+    private static boolean check(int depth, int threads) throws InterruptedException {
+        boolean matched = true;
+
+        for (int d = 0; d <= depth; d++) {
+            long[] counts = run(MancalaEngine.START, d, threads);
+            for (long count : counts) {
+                if (count != START_COUNTS[d]) {
+                    System.out.printf("depth %d: expected %d but counted %d%n", d, START_COUNTS[d], count);
+                    matched = false;
+                }
+            }
+        }
+
+        System.out.println(matched ? "all counts match" : "COUNTS DIFFER");
+        return matched;
+    }
+
+    /**
+     * Count with each generator on one thread, then on all threads, printing the speed of each
+     *
+     * @return the counts in the order printed
+     */
+    private static long[] run(int[] board, int depth, int threads) throws InterruptedException {
+        long[] counts = new long[3];
+
+        long start = System.nanoTime();
+        counts[0] = count(board, depth);
+        report(depth, "arrays", 1, counts[0], System.nanoTime() - start);
+
+        start = System.nanoTime();
+        counts[1] = count(PackedBoard.of(board), depth);
+        report(depth, "packed", 1, counts[1], System.nanoTime() - start);
+
+        start = System.nanoTime();
+        counts[2] = countParallel(board, depth, threads);
+        report(depth, "packed", threads, counts[2], System.nanoTime() - start);
+
+        return counts;
+    }
+
+    private static void report(int depth, String generator, int threads, long count, long nanos) {
+        System.out.printf("depth %2d %s %2d thread%s: %,15d boards %9.1f ms %8.2f M boards/s%n",
+                depth, generator, threads, threads == 1 ? " " : "s", count, nanos / 1e6,
+                count * 1e3 / Math.max(1, nanos));
+    }
+
+    /**
+     * Print the count below each first move
+     */
+    private static void divide(int[] board, int depth) {
+        long total = 0;
+        if (depth > 0 && !Rules.isGameOver(board)) {
+            for (int pit = 0; pit < 6; pit++) {
+                if (board[pit] > 0) {
+                    int[] sown = board.clone();
+                    long count = count(copy(sown, new int[14], !Rules.sow(pit, sown)), depth - 1);
+                    System.out.printf("pit %d: %,d%n", pit, count);
+                    total += count;
+                }
+            }
+        }
+        System.out.printf("total: %,d%n", total);
+    }
+
+    /**
+     * Count the boards reached in some plies with Rules.sow
+     *
+     * @param board the board, with the player to move in pits 0-5
+     * @param depth how many plies to go
+     * @return how many boards are reached in exactly that many plies
+     */
+    static long count(int[] board, int depth) {
+        int[][] plies = new int[depth + 1][14];
+        System.arraycopy(board, 0, plies[depth], 0, 14);
+        return count(plies, new int[14], depth);
+    }
+
+    /**
+     * Count from plies[depth], making each child in plies[depth - 1]
+     *
+     * @param sown where to sow before the child is laid out for the player to move
+     */
+    private static long count(int[][] plies, int[] sown, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        int[] board = plies[depth];
+        if (Rules.isGameOver(board)) {
+            return 0;
+        }
+
+        int[] child = plies[depth - 1];
+        long count = 0;
+
+        for (int pit = 0; pit < 6; pit++) {
+            if (board[pit] > 0) {
+                System.arraycopy(board, 0, sown, 0, 14);
+                copy(sown, child, !Rules.sow(pit, sown));
+                count += count(plies, sown, depth - 1);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Copy a board, swapping the sides if asked
+     *
+     * @return the copy
+     */
+    private static int[] copy(int[] from, int[] to, boolean swap) {
+        if (swap) {
+            System.arraycopy(from, 7, to, 0, 7);
+            System.arraycopy(from, 0, to, 7, 7);
+        } else {
+            System.arraycopy(from, 0, to, 0, 14);
+        }
+        return to;
+    }
+
+    /**
+     * Count the boards reached in some plies with PackedBoard.sow
+     *
+     * @param board the board, with the player to move in pits 0-5
+     * @param depth how many plies to go
+     * @return how many boards are reached in exactly that many plies
+     */
+    static long count(PackedBoard board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (board.isGameOver()) {
+            return 0;
+        }
+
+        long count = 0;
+        for (int pit = 0; pit < 6; pit++) {
+            if (board.get(pit) > 0) {
+                PackedBoard child = board.sow(pit);
+                count += count(board.isExtraTurn(pit) ? child : child.swapSides(), depth - 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Count with PackedBoard.sow, splitting the tree a few plies down over a pool of threads
+     *
+     * @param board   the board, with the player to move in pits 0-5
+     * @param depth   how many plies to go
+     * @param threads how many threads to count on
+     * @return how many boards are reached in exactly that many plies
+     */
+    static long countParallel(int[] board, int depth, int threads) throws InterruptedException {
+        List<PackedBoard> frontier = new ArrayList<>();
+        split(PackedBoard.of(board), Math.min(SPLIT, depth), frontier);
+
+        int rest = depth - Math.min(SPLIT, depth);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (PackedBoard start : frontier) {
+                counts.add(pool.submit(() -> count(start, rest)));
+            }
+
+            long count = 0;
+            for (Future<Long> future : counts) {
+                count += future.get();
+            }
+            return count;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("perft thread failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Collect the boards reached in exactly some plies, once for each way of reaching them
+     */
+    private static void split(PackedBoard board, int depth, List<PackedBoard> boards) {
+        if (depth == 0) {
+            boards.add(board);
+            return;
+        }
+        if (board.isGameOver()) {
+            return;
+        }
+
+        for (int pit = 0; pit < 6; pit++) {
+            if (board.get(pit) > 0) {
+                PackedBoard child = board.sow(pit);
+                split(board.isExtraTurn(pit) ? child : child.swapSides(), depth - 1, boards);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package shea.mancala;
+
+import java.util.SplittableRandom;
+
+/**
+ * A fixed set of boards for comparing and timing the AI.
+ * All boards have the player to move in pits 0-5 and were reached by
+ * random play from the starting layout.
+ */
+final class Positions {
+
+    static final int[][] OPENING = {
+            {4, 4, 4, 4, 4, 4, 0, 4, 4, 4, 4, 4, 4, 0},
+            {2, 7, 3, 7, 6, 0, 2, 1, 6, 6, 6, 0, 0, 2},
+            {2, 6, 6, 0, 6, 1, 8, 1, 6, 0, 1, 6, 2, 3},
+            {6, 1, 6, 6, 1, 6, 1, 5, 5, 1, 0, 7, 0, 3},
+            {3, 6, 1, 0, 7, 6, 2, 6, 5, 0, 1, 1, 7, 3},
+    };
+
+    static final int[][] MIDGAME = {
+            {0, 1, 3, 12, 5, 0, 7, 4, 0, 4, 1, 0, 5, 6},
+            {1, 3, 11, 1, 1, 2, 6, 1, 0, 3, 10, 2, 1, 6},
+            {1, 4, 0, 2, 0, 6, 17, 1, 4, 0, 1, 1, 5, 6},
+            {2, 2, 7, 2, 0, 5, 8, 3, 2, 0, 3, 1, 9, 4},
+    };
+
+    static final int[][] ENDGAME = {
+            {11, 1, 0, 2, 0, 0, 18, 0, 0, 0, 1, 0, 2, 13},
+            {2, 1, 3, 1, 1, 3, 16, 0, 1, 1, 0, 0, 1, 18},
+            {2, 0, 0, 0, 2, 1, 19, 0, 0, 1, 0, 5, 1, 17},
+            {1, 0, 1, 3, 2, 2, 22, 2, 0, 0, 1, 1, 0, 13},
+    };
+
+    private Positions() {
+    }
+
+    /**
+     * Retrieve every board in the set
+     *
+     * @return the opening, midgame and endgame boards in that order
+     */
+    static int[][] all() {
+        int[][] all = new int[OPENING.length + MIDGAME.length + ENDGAME.length][];
+        System.arraycopy(OPENING, 0, all, 0, OPENING.length);
+        System.arraycopy(MIDGAME, 0, all, OPENING.length, MIDGAME.length);
+        System.arraycopy(ENDGAME, 0, all, OPENING.length + MIDGAME.length, ENDGAME.length);
+        return all;
+    }
+
+    /**
+     * Reach boards by random play from the starting layout
+     *
+     * @param count how many boards
+     * @param seed  seeds the moves, so the same seed gives the same boards
+     * @return boards with the player to move in pits 0-5, none of them over
+     */
+    static int[][] random(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[][] boards = new int[count][];
+
+        for (int i = 0; i < count; ) {
+            int[] board = Geometry.STANDARD.start();
+            int plies = 4 + random.nextInt(40);
+
+            for (int ply = 0; ply < plies && !Rules.isGameOver(board); ply++) {
+                int pit;
+                do {
+                    pit = random.nextInt(6);
+                } while (board[pit] == 0);
+
+                if (!Rules.sow(pit, board)) {
+                    Geometry.STANDARD.swapSides(board);
+                }
+            }
+
+            if (!Rules.isGameOver(board)) {
+                boards[i++] = board;
+            }
+        }
+
+        return boards;
+    }
+}
@@ -0,0 +1,81 @@
+package shea.mancala;
+
+/**
+ * Compare quiescence bounds by the nodes searched and the moves found.
+ * The boards in Positions and some reached by random play are searched to
+ * a range of depths with each bound. Every move on every board is also
+ * scored by a deeper search without quiescence, and a move found loses
+ * the difference between its score there and the best move's. A bound
+ * that loses no more than another for fewer nodes plays as well for less.
+ * <p>
+ * Usage: QuiescenceReport [reference depth, default 14] [random boards, default 50] [bounds..., default 0 1 2 4 8]
+ */
+public class QuiescenceReport {
+
+    /**
+     * Print the report
+     *
+     * @param args the reference depth, how many random boards to add and the bounds to compare
+     */
+    public static void main(String[] args) {
+        int referenceDepth = args.length > 0 ? Integer.parseInt(args[0]) : 14;
+        int randomBoards = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int[] bounds = {0, 1, 2, 4, 8};
+
+        if (args.length > 2) {
+            bounds = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                bounds[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        int[][] fixed = Positions.all();
+        int[][] boards = new int[fixed.length + randomBoards][];
+        System.arraycopy(fixed, 0, boards, 0, fixed.length);
+        System.arraycopy(Positions.random(randomBoards, 1), 0, boards, fixed.length, randomBoards);
+
+        // scores[i][pit] is the reference score of a move, best[i] the highest of them
+        int[][] scores = new int[boards.length][6];
+        int[] best = new int[boards.length];
+
+        Search reference = new Search();
+        reference.setQuiescence(0);
+        for (int i = 0; i < boards.length; i++) {
+            best[i] = -Search.INFINITY;
+            for (int pit = 0; pit < 6; pit++) {
+                if (boards[i][pit] > 0) {
+                    reference.getTable().clear();
+                    scores[i][pit] = reference.searchMove(boards[i], pit, referenceDepth,
+                            -Search.INFINITY, Search.INFINITY, 0);
+                    best[i] = Math.max(best[i], scores[i][pit]);
+                }
+            }
+        }
+
+        System.out.printf("%d boards, moves scored at depth %d without quiescence%n", boards.length, referenceDepth);
+        System.out.printf("%-6s %6s %12s %10s %10s%n", "bound", "depth", "nodes", "best", "loss");
+
+        for (int bound : bounds) {
+            Search search = new Search();
+            search.setQuiescence(bound);
+
+            for (int depth = 4; depth < referenceDepth - 1; depth++) {
+                long nodes = 0, loss = 0;
+                int found = 0;
+
+                for (int i = 0; i < boards.length; i++) {
+                    search.getTable().clear();
+                    SearchStats stats = search.searchDepth(boards[i], depth);
+                    nodes += stats.nodes;
+                    loss += best[i] - scores[i][stats.move];
+                    if (scores[i][stats.move] == best[i]) {
+                        found++;
+                    }
+                }
+
+                System.out.printf("%-6d %6d %12d %9.0f%% %10.2f%n", bound, depth, nodes,
+                        100.0 * found / boards.length, (double) loss / boards.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package shea.mancala;
+
+/**
+ * Board rules shared by the game and the AI search.
+ * Boards are laid out as in MancalaGame: pits 0-5 and store 6 belong to the
+ * player moving, pits 7-12 and store 13 to the other player.
+ */
+final class Rules {
+
+    /**
+     * Sowing passes over pits 1-12 only, skipping pit 0 and store 13
+     */
+    static final int LAP = 12;
+
+    /**
+     * LAST_PIT[pit][stones % LAP] is the pit the last stone sown from a pit
+     * lands in. A capture is only possible when it is in the mover's row.
+     */
+    private static final byte[][] LAST_PIT = new byte[13][LAP];
+
+    static {
+        for (int pit = 0; pit < 13; pit++) {
+            for (int rest = 0; rest < LAP; rest++) {
+                LAST_PIT[pit][rest] = (byte) ((pit + rest + LAP - 1) % LAP + 1);
+            }
+        }
+    }
+
+    private Rules() {
+    }
+
+    /**
+     * Sow the stones of a pit in place, capturing into store 6.
+     * Full laps are added to every pit at once and the stones left over to
+     * the pits after the one sown, so large pits cost no more than small ones.
+     *
+     * @param pit   the pit to empty
+     * @param board the board to change
+     * @return true if the pit was empty or the last stone landed in store 6
+     */
+    static boolean sow(final int pit, int[] board) {
+        int stones = board[pit];
+
+        // return if pit has no stones
+        if (stones < 1) {
+            return true;  //true means go again
+        }
+
+        // take stones out of pit
+        board[pit] = 0;
+
+        int laps = stones / LAP;
+        int rest = stones - laps * LAP;
+
+        if (laps > 0) {
+            for (int i = 1; i <= LAP; i++) {
+                board[i] += laps;
+            }
+        }
+
+        // the rest go to the pits after this one, wrapping from pit 12 to pit 1
+        int end = pit + 1 + rest;
+        for (int i = pit + 1; i < Math.min(end, LAP + 1); i++) {
+            board[i]++;
+        }
+        for (int i = 1; i < end - LAP; i++) {
+            board[i]++;
+        }
+
+        int last = LAST_PIT[pit][rest];
+
+        // Check for capture
+        if (last < 6 && board[last] == 1 && board[12 - last] > 0) {
+
+            // Transfer this stone along with opposite pit's stones to store
+            board[6] += board[12 - last] + 1;
+
+            // Clear the pits
+            board[last] = 0;
+            board[12 - last] = 0;
+        }
+
+        return last == 6;
+    }
+
+    /**
+     * Find where the last stone sown from a pit lands
+     *
+     * @param pit    the pit sown, 0-12
+     * @param stones the stones in it, at least one
+     * @return the pit or store receiving the last stone
+     */
+    static int lastPit(int pit, int stones) {
+        return LAST_PIT[pit][stones % LAP];
+    }
+
+    /**
+     * Check whether a row of pits has run out of stones
+     *
+     * @param board the board to check
+     * @param first the first pit of the row, 0 or 7
+     * @return true if all six pits are empty
+     */
+    static boolean isRowEmpty(int[] board, int first) {
+        for (int i = first; i < first + 6; ++i) {
+            if (board[i] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the game is over on a board
+     *
+     * @param board the board to check
+     * @return true if either row is empty
+     */
+    static boolean isGameOver(int[] board) {
+        return isRowEmpty(board, 0) || isRowEmpty(board, 7);
+    }
+}
@@ -0,0 +1,833 @@
+package shea.mancala;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Allocation-free negamax search used by the AI, with a choice of
+ * algorithm: plain alpha-beta, principal variation search, or MTD(f).
+ * Scores are ints from the point of view of the player to move, and the
+ * best root move is kept apart from the score. Each ply sows into its own
+ * preallocated board, so no arrays or lists are created while the tree is
+ * being searched. Positions are hashed with Zobrist keys and looked up in
+ * a transposition table for cutoffs and for trying the previously best pit
+ * first.
+ * <p>
+ * Every board is laid out for the player to move, as MancalaEngine does:
+ * a move that passes the turn swaps the halves of the board and negates
+ * the score, while an extra turn keeps both, so both players sow and
+ * capture by the same rules. At the horizon a short quiescence search
+ * follows extra turns and captures, so a score is not taken in the
+ * middle of a chain of moves.
+ * <p>
+ * A running search stops early when its thread is interrupted or its stop
+ * flag is raised, returning the result of the last completed depth.
+ */
+final class Search {
+
+    /**
+     * How the tree is searched. All three find the same score at a fixed
+     * depth; they differ in how many nodes it takes.
+     */
+    enum Algorithm {
+
+        /**
+         * Every move searched with the full window
+         */
+        ALPHA_BETA,
+
+        /**
+         * The first move searched with the full window, the rest with a null
+         * window that is widened again only when a move proves better
+         */
+        PVS,
+
+        /**
+         * Null-window searches at the root that close in on the score from a
+         * first guess, the previous depth's score when deepening
+         */
+        MTDF
+    }
+
+    /**
+     * Raised whenever a change to the search makes it find other moves or
+     * scores with the same evaluator, so results stored ahead of time, like
+     * the opening book's, can be told apart. 2 since extra turns are searched
+     * as plies of the same side and the horizon is quiesced.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Algorithm used when none is set, chosen by AlgorithmReport
+     */
+    static final Algorithm DEFAULT_ALGORITHM =
+            Algorithm.valueOf(System.getProperty("mancala.search.algorithm", "MTDF"));
+
+    /**
+     * Larger than any score the heuristic can give
+     */
+    static final int INFINITY = 1_000_000;
+
+    /**
+     * Deepest iteration of a timed search
+     */
+    static final int MAX_DEPTH = 64;
+
+    /**
+     * Most plies of extra turns and captures searched past the horizon, chosen by QuiescenceReport
+     */
+    static final int DEFAULT_QUIESCENCE = Integer.getInteger("mancala.search.quiescence", 4);
+
+    /**
+     * One board per remaining depth, plies[0] holds the leaves
+     */
+    private int[][] plies = new int[0][];
+
+    /**
+     * Hash of the board in plies at the same index, laid out for the player to move
+     */
+    private long[] hashes = new long[0];
+
+    /**
+     * The same boards' hashes once the turn passes, so a move that passes it
+     * is hashed from the pits it changed too
+     */
+    private long[] swappedHashes = new long[0];
+
+    /**
+     * One board per remaining quiescence ply, below the leaves
+     */
+    private int[][] quiet = new int[0][];
+
+    private int quiescence = DEFAULT_QUIESCENCE;
+
+    private final TranspositionTable table;
+
+    private final int[] rootBoard = new int[14];
+    private int rootDepth;
+    private int rootMove;
+    private int rootScore;
+
+    /**
+     * Best root move of the previous iteration, searched first
+     */
+    private int previousMove;
+
+    /**
+     * System.nanoTime() at which a timed search stops, 0 if untimed
+     */
+    private long deadline;
+    private boolean aborted;
+
+    /**
+     * Counters for SearchStats, kept until resetStats()
+     */
+    private long nodes, leaves, cutoffs;
+    private int maxPly;
+
+    /**
+     * Raised to stop the search, shared by the threads of a parallel search
+     */
+    private AtomicBoolean stop;
+
+    /**
+     * Scores the leaves, seedsOnSide(2) unless set
+     */
+    private Evaluator evaluator = Evaluator.seedsOnSide(2);
+    private boolean incremental = true;
+
+    /**
+     * Score of the board in plies at the same index, kept while searching
+     * with an incremental evaluator
+     */
+    private int[] scores = new int[0];
+
+    /**
+     * The board at the end of a game looked up in the endgame table
+     */
+    private final int[] finalBoard = new int[14];
+
+    /**
+     * Exact values of boards with few stones left, or null
+     */
+    private EndgameTable endgame;
+
+    private Algorithm algorithm = DEFAULT_ALGORITHM;
+
+    /**
+     * Create a search using its own table
+     */
+    Search() {
+        this(new TranspositionTable());
+    }
+
+    /**
+     * Create a search using a given table
+     *
+     * @param table the transposition table to store results in
+     */
+    Search(TranspositionTable table) {
+        this(table, new AtomicBoolean());
+    }
+
+    /**
+     * Create a search that can be stopped from another thread
+     *
+     * @param table the transposition table to store results in
+     * @param stop  stops the search once set to true
+     */
+    Search(TranspositionTable table, AtomicBoolean stop) {
+        this.table = table;
+        this.stop = stop;
+    }
+
+    /**
+     * Find the AI's move for a board
+     *
+     * @param board the board with the AI's pits in 0-5
+     * @param depth how many plies to search
+     * @return the pit to move, or -1 if there is no move
+     */
+    int bestMove(int[] board, int depth) {
+        return searchDepth(board, depth).move;
+    }
+
+    /**
+     * Search a board to a fixed depth
+     *
+     * @param board the board with the AI's pits in 0-5
+     * @param depth how many plies to search
+     * @return the move found and the work done
+     */
+    SearchStats searchDepth(int[] board, int depth) {
+        return searchDepth(board, depth, true);
+    }
+
+    /**
+     * Search a board to a fixed depth, as one of a series of searches
+     * filling the table together
+     *
+     * @param board     the board with the AI's pits in 0-5
+     * @param depth     how many plies to search
+     * @param newSearch whether to start a new table generation, false to
+     *                  keep the entries of the series as recent as this search's
+     * @return the move found and the work done
+     */
+    SearchStats searchDepth(int[] board, int depth, boolean newSearch) {
+        long started = System.nanoTime();
+        resetStats();
+
+        if (Rules.isGameOver(board) || depth < 1) {
+            rootMove = -1;
+            rootDepth = 0;
+        } else {
+            if (newSearch) {
+                table.newSearch();
+            }
+            start(board, depth, 0);
+            searchRoot(depth, evaluator.evaluate(board));
+        }
+
+        return getStats(System.nanoTime() - started);
+    }
+
+    /**
+     * Find the AI's move by searching one ply deeper at a time until the time is up
+     *
+     * @param board  the board with the AI's pits in 0-5
+     * @param millis how long the search may take
+     * @return the pit to move, or -1 if there is no move
+     */
+    int bestMoveInTime(int[] board, long millis) {
+        return searchInTime(board, millis).move;
+    }
+
+    /**
+     * Search one ply deeper at a time until the time is up.
+     * The move from the last fully searched depth is returned, so a search
+     * cut short never replaces it with a half-searched one.
+     *
+     * @param board  the board with the AI's pits in 0-5
+     * @param millis how long the search may take
+     * @return the move found and the work done
+     */
+    SearchStats searchInTime(int[] board, long millis) {
+        long started = System.nanoTime();
+        resetStats();
+        rootMove = -1;
+        rootDepth = 0;
+
+        if (Rules.isGameOver(board)) {
+            return getStats(System.nanoTime() - started);
+        }
+
+        table.newSearch();
+        start(board, MAX_DEPTH, started + millis * 1_000_000L);
+
+        int move = -1, score = evaluator.evaluate(board), depth = 0;
+        for (int d = 1; d <= MAX_DEPTH; d++) {
+            previousMove = move;
+            searchRoot(d, score);
+
+            if (aborted) {
+                break;
+            }
+
+            move = rootMove;
+            score = rootScore;
+            depth = d;
+        }
+
+        rootMove = move;
+        rootScore = score;
+        rootDepth = depth;
+        deadline = 0;
+        return getStats(System.nanoTime() - started);
+    }
+
+    /**
+     * Clear the node counters
+     */
+    void resetStats() {
+        nodes = leaves = cutoffs = 0;
+        maxPly = 0;
+    }
+
+    /**
+     * Collect the counters and result of the last search
+     *
+     * @param elapsedNanos how long the search took
+     * @return the statistics of the search
+     */
+    SearchStats getStats(long elapsedNanos) {
+        return new SearchStats(rootMove, rootScore, rootDepth, maxPly, nodes, leaves, cutoffs, elapsedNanos);
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    long getLeaves() {
+        return leaves;
+    }
+
+    long getCutoffs() {
+        return cutoffs;
+    }
+
+    int getMaxPly() {
+        return maxPly;
+    }
+
+    /**
+     * Prepare the buffers and table for a new search
+     */
+    private void start(int[] board, int depth, long deadline) {
+        if (plies.length <= depth) {
+            plies = new int[depth + 1][14];
+            hashes = new long[depth + 1];
+            swappedHashes = new long[depth + 1];
+            scores = new int[depth + 1];
+        }
+        if (quiet.length != quiescence) {
+            quiet = new int[quiescence][14];
+        }
+
+        System.arraycopy(board, 0, rootBoard, 0, 14);
+        this.deadline = deadline;
+        aborted = false;
+        previousMove = -1;
+    }
+
+    /**
+     * Search the root board to a given depth
+     *
+     * @param guess the expected score, where MTD(f) starts looking
+     */
+    private void searchRoot(int depth, int guess) {
+        System.arraycopy(rootBoard, 0, plies[depth], 0, 14);
+        hashes[depth] = Zobrist.hash(rootBoard);
+        swappedHashes[depth] = Zobrist.hashSwapped(rootBoard);
+        scores[depth] = incremental ? evaluator.evaluate(rootBoard) : 0;
+
+        rootDepth = depth;
+        rootMove = -1;
+        rootScore = algorithm == Algorithm.MTDF
+                ? mtdf(depth, guess)
+                : negamax(depth, -INFINITY, INFINITY);
+    }
+
+    /**
+     * Find the root score by null-window searches, raising a lower bound or
+     * lowering an upper bound around the guess until they meet
+     */
+    private int mtdf(int depth, int guess) {
+        int score = guess, lower = -INFINITY, upper = INFINITY;
+        int move = -1;
+
+        while (lower < upper) {
+            int beta = score == lower ? score + 1 : score;
+            score = negamax(depth, beta - 1, beta);
+
+            if (aborted) {
+                return 0;
+            }
+
+            // only a search failing high has proven its move reaches the score
+            if (score < beta) {
+                upper = score;
+            } else {
+                lower = score;
+                move = rootMove;
+            }
+        }
+
+        rootMove = move;
+        return score;
+    }
+
+    /**
+     * Score one of the AI's moves, so the root can be split between threads
+     *
+     * @param board    the board with the AI's pits in 0-5
+     * @param pit      the AI's move
+     * @param depth    the depth of the whole search, including this move
+     * @param alpha    the score the AI is already sure of
+     * @param beta     the score the opponent is already sure of
+     * @param deadline System.nanoTime() at which to give up, 0 for none
+     * @return the score of the move, not to be used if isAborted()
+     */
+    int searchMove(int[] board, int pit, int depth, int alpha, int beta, long deadline) {
+        start(board, depth, deadline);
+        rootDepth = depth;
+
+        System.arraycopy(rootBoard, 0, plies[depth], 0, 14);
+        hashes[depth] = Zobrist.hash(rootBoard);
+        swappedHashes[depth] = Zobrist.hashSwapped(rootBoard);
+        scores[depth] = incremental ? evaluator.evaluate(rootBoard) : 0;
+        return searchChild(depth, pit, alpha, beta);
+    }
+
+    /**
+     * Follow the best moves stored in the table from a move on, the line
+     * the search expects to be played
+     *
+     * @param board the board with the player to move in pits 0-5
+     * @param pit   the first move
+     * @param most  the most moves to follow
+     * @return the pits sown, each from the side of the player sowing it, starting with pit
+     */
+    int[] principalVariation(int[] board, int pit, int most) {
+        int[] line = new int[most];
+        int[] current = board.clone();
+        int length = 0;
+
+        // another thread may have replaced an entry, so every move is checked before it is played
+        while (length < most && pit >= 0 && pit < 6 && current[pit] > 0) {
+            line[length++] = pit;
+            if (!Rules.sow(pit, current)) {
+                swapSides(current);
+            }
+
+            long entry = Rules.isGameOver(current) ? 0 : table.probe(Zobrist.hash(current));
+            pit = entry == 0 ? -1 : TranspositionTable.move(entry);
+        }
+
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Check whether the last search ran out of time
+     *
+     * @return true if its result is incomplete
+     */
+    boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Retrieve the score of the move found by the last search
+     *
+     * @return the heuristic score for the AI
+     */
+    int getScore() {
+        return rootScore;
+    }
+
+    /**
+     * Retrieve the depth the last search completed
+     *
+     * @return the depth of the returned move
+     */
+    int getDepth() {
+        return rootDepth;
+    }
+
+    /**
+     * Choose how to search. ParallelSearch splits the root itself, so it
+     * searches below the root with PVS when given MTDF.
+     *
+     * @param algorithm the algorithm, DEFAULT_ALGORITHM unless set
+     */
+    void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Choose how far past the horizon extra turns and captures are followed
+     *
+     * @param plies the most quiescence plies, 0 to score the horizon as it is
+     */
+    void setQuiescence(int plies) {
+        if (plies < 0 || plies > MAX_DEPTH) {
+            throw new IllegalArgumentException("quiescence of " + plies + " plies");
+        }
+        this.quiescence = plies;
+    }
+
+    int getQuiescence() {
+        return quiescence;
+    }
+
+    /**
+     * Choose the flag that stops the search, for a search reused between
+     * analyses that are stopped separately
+     *
+     * @param stop stops the search once set to true
+     */
+    void setStop(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    /**
+     * Choose how the leaves are scored
+     *
+     * @param evaluator the evaluator, Evaluator.seedsOnSide(2) by default
+     */
+    void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.incremental = evaluator.isIncremental();
+    }
+
+    Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Look up boards with few stones left instead of searching them
+     *
+     * @param endgame the table to probe, or null to search every board
+     */
+    void setEndgameTable(EndgameTable endgame) {
+        this.endgame = endgame;
+    }
+
+    TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Search the board stored for this depth
+     *
+     * @return the score of the board for the player to move
+     */
+    private int negamax(int depth, int alpha, int beta) {
+        int[] board = plies[depth];
+
+        // check the clock and for cancellation every 1024 nodes once the first iteration is done
+        if ((++nodes & 0x3FF) == 0 && rootDepth > 1 && (deadline != 0 && System.nanoTime() > deadline
+                || stop.get() || Thread.currentThread().isInterrupted())) {
+            aborted = true;
+        }
+
+        if (rootDepth - depth > maxPly) {
+            maxPly = rootDepth - depth;
+        }
+
+        if (aborted) {
+            return 0;
+        } else if (Rules.isRowEmpty(board, 7)) {
+            leaves++;
+            return gameOver(board);
+        } else if (depth == 0) {
+            return quiesce(board, incremental ? scores[depth] : 0, quiescence, alpha, beta);
+        }
+
+        long key = hashes[depth];
+        int alphaStart = alpha, betaStart = beta;
+        int ttMove = -1;
+
+        // entries are only trusted at the same depth, so a fixed-depth search
+        // returns the same score whichever order boards were reached in
+        long entry = table.probe(key);
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+
+            if (TranspositionTable.depth(entry) == depth && depth != rootDepth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+
+                if (bound == TranspositionTable.EXACT) {
+                    cutoffs++;
+                    return score;
+                } else if (bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+
+                if (alpha >= beta) {
+                    cutoffs++;
+                    return score;
+                }
+            }
+        }
+
+        // the root keeps pit order apart from the previous iteration's move,
+        // so searches of the same depth break ties between moves the same way
+        if (depth == rootDepth) {
+            ttMove = previousMove;
+        }
+
+        int best = -INFINITY;
+        int move = -1;
+
+        // try the stored move first, then the rest of the row in order
+        for (int i = -1; i < 6; i++) {
+            int pit = i < 0 ? ttMove : i;
+
+            if (pit < 0 || pit >= 6 || board[pit] == 0 || (i >= 0 && pit == ttMove)) {
+                continue;
+            }
+
+            int value;
+            if (algorithm == Algorithm.PVS && move >= 0) {
+                // prove the move is no better than the best so far, searching it fully only if it is
+                value = searchChild(depth, pit, alpha, alpha + 1);
+                if (value > alpha && value < beta && !aborted) {
+                    value = searchChild(depth, pit, alpha, beta);
+                }
+            } else {
+                value = searchChild(depth, pit, alpha, beta);
+            }
+
+            if (aborted) {
+                return 0;
+            }
+
+            if (value > best) {
+                best = value;
+                move = pit;
+            }
+
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+                cutoffs++;
+                break;
+            }
+        }
+
+        // a player without stones ends the game here
+        if (move < 0) {
+            leaves++;
+            return gameOver(board);
+        }
+
+        int bound = best <= alphaStart ? TranspositionTable.UPPER
+                : best >= betaStart ? TranspositionTable.LOWER
+                : TranspositionTable.EXACT;
+        table.store(key, depth, bound, best, move);
+
+        if (depth == rootDepth) {
+            rootMove = move;
+        }
+
+        return best;
+    }
+
+    /**
+     * Make a move into the next ply's board and search it
+     *
+     * @return the score of the move for the player making it
+     */
+    private int searchChild(int depth, int pit, int alpha, int beta) {
+        int[] board = plies[depth];
+        int[] child = plies[depth - 1];
+
+        System.arraycopy(board, 0, child, 0, 14);
+        boolean again = Rules.sow(pit, child);
+
+        if (endgame != null) {
+            int value = endgame.probe(child, again ? 0 : 7);
+
+            if (value != EndgameTable.UNKNOWN) {
+                nodes++;
+                leaves++;
+                return evaluator.evaluate(finalBoard(child, again ? value : -value));
+            }
+        }
+
+        int score = incremental ? evaluator.update(scores[depth], board, child, pit) : 0;
+        long hash = Zobrist.update(hashes[depth], board, child, pit);
+        long swapped = Zobrist.updateSwapped(swappedHashes[depth], board, child, pit);
+
+        // an extra turn is searched as another ply for the same player
+        if (again) {
+            scores[depth - 1] = score;
+            hashes[depth - 1] = hash;
+            swappedHashes[depth - 1] = swapped;
+            return negamax(depth - 1, alpha, beta);
+        }
+
+        swapSides(child);
+        scores[depth - 1] = -score;
+        hashes[depth - 1] = swapped;
+        swappedHashes[depth - 1] = hash;
+        return -negamax(depth - 1, -beta, -alpha);
+    }
+
+    /**
+     * Follow the extra turns and captures of the player to move past the
+     * horizon, standing on the static score whenever no such move beats it
+     *
+     * @param board the board, laid out for the player to move
+     * @param score the board's score if the evaluator is incremental
+     * @param left  how many more quiescence plies may be searched
+     * @return the score of the board for the player to move
+     */
+    private int quiesce(int[] board, int score, int left, int alpha, int beta) {
+        leaves++;
+        if (Rules.isGameOver(board)) {
+            return gameOver(board);
+        }
+
+        int best = incremental ? score : evaluator.evaluate(board);
+        if (left == 0 || best >= beta) {
+            return best;
+        }
+
+        int ply = rootDepth + quiescence - left;
+        if (ply > maxPly) {
+            maxPly = ply;
+        }
+
+        alpha = Math.max(alpha, best);
+        int[] child = quiet[left - 1];
+
+        for (int pit = 0; pit < 6; pit++) {
+            if (!isTactical(board, pit)) {
+                continue;
+            }
+
+            nodes++;
+            System.arraycopy(board, 0, child, 0, 14);
+            boolean again = Rules.sow(pit, child);
+            int sown = incremental ? evaluator.update(score, board, child, pit) : 0;
+
+            int value;
+            if (again) {
+                value = quiesce(child, sown, left - 1, alpha, beta);
+            } else {
+                swapSides(child);
+                value = -quiesce(child, -sown, left - 1, -beta, -alpha);
+            }
+
+            if (value > best) {
+                best = value;
+                alpha = Math.max(alpha, value);
+                if (alpha >= beta) {
+                    cutoffs++;
+                    break;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Check whether a move earns an extra turn or captures, the moves quiescence follows.
+     * Only sowings of less than a lap are counted, which cannot refill the pit they end on.
+     *
+     * @param board the board with the player to move in pits 0-5
+     * @param pit   one of the player's pits
+     * @return true if sowing the pit ends in store 6 or captures
+     */
+    static boolean isTactical(int[] board, int pit) {
+        int stones = board[pit];
+        if (stones == 0 || stones >= Rules.LAP) {
+            return false;
+        }
+
+        // a sowing that went all the way round left a stone in the opposite pit
+        int last = Rules.lastPit(pit, stones);
+        return last == 6 || last < 6 && board[last] == 0 && (board[12 - last] > 0 || last < pit);
+    }
+
+    /**
+     * Check whether a board is quiet, the player to move having no extra turn or capture
+     *
+     * @param board the board with the player to move in pits 0-5
+     * @return true if no move is tactical
+     */
+    static boolean isQuiet(int[] board) {
+        for (int pit = 0; pit < 6; pit++) {
+            if (isTactical(board, pit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score a board on which the game is over, each side's stones going to its own store
+     */
+    private int gameOver(int[] board) {
+        int gain = 0;
+        for (int i = 0; i < 6; i++) {
+            gain += board[i] - board[i + 7];
+        }
+        return evaluator.evaluate(finalBoard(board, gain));
+    }
+
+    /**
+     * Lay a board out for the other player in place
+     */
+    private static void swapSides(int[] board) {
+        for (int i = 0; i < 7; i++) {
+            int stones = board[i];
+            board[i] = board[i + 7];
+            board[i + 7] = stones;
+        }
+    }
+
+    /**
+     * Lay out the board a game ends on, all stones stored
+     *
+     * @param gain how many more of the stones left the player to move will store than the other
+     */
+    private int[] finalBoard(int[] board, int gain) {
+        int left = EndgameTable.seeds(board);
+        finalBoard[6] = board[6] + (left + gain) / 2;
+        finalBoard[13] = board[13] + (left - gain) / 2;
+        return finalBoard;
+    }
+
+    /**
+     * Score a board for the player owning pits 0-5, counting stores twice
+     *
+     * @param board the board to score
+     * @return the same value as MancalaEngine.heuristicStoneCompare
+     */
+    static int evaluate(int[] board) {
+        int score = 2 * (board[6] - board[13]);
+        for (int i = 0; i < 6; i++) {
+            score += board[i] - board[i + 7];
+        }
+        return score;
+    }
+}
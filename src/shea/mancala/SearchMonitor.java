@@ -0,0 +1,186 @@
+package shea.mancala;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Keeps the statistics of the latest AI search for monitoring.
+ * Searches report here once per move, never per node.
+ */
+final class SearchMonitor implements SearchMonitorMXBean {
+
+    /**
+     * The monitor shared by every game in this process
+     */
+    static final SearchMonitor INSTANCE = new SearchMonitor();
+
+    private static final String NAME = "shea.mancala:type=SearchMonitor";
+
+    private volatile SearchStats last = new SearchStats(-1, 0, 0, 0, 0, 0, 0, 0);
+    private final AtomicLong movesSearched = new AtomicLong();
+    private final AtomicLong totalNodes = new AtomicLong();
+
+    /**
+     * Work done pondering, kept apart from the moves' own searches, and the
+     * moves that were answered from it
+     */
+    private final AtomicLong ponderNodes = new AtomicLong();
+    private final AtomicLong ponderNanos = new AtomicLong();
+    private final AtomicLong ponderHits = new AtomicLong();
+
+    /**
+     * The table whose counters are published, or null
+     */
+    private volatile TranspositionTable table;
+
+    private SearchMonitor() {
+    }
+
+    /**
+     * Register the monitor with the platform MBean server, once
+     */
+    static synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            ObjectName name = new ObjectName(NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register " + NAME, e);
+        }
+    }
+
+    /**
+     * Record the statistics of a finished search
+     *
+     * @param stats the search's statistics
+     */
+    void record(SearchStats stats) {
+        last = stats;
+        movesSearched.incrementAndGet();
+        totalNodes.addAndGet(stats.nodes);
+    }
+
+    /**
+     * Count a search done while the opponent thinks
+     *
+     * @param stats the search's statistics
+     */
+    void recordPonder(SearchStats stats) {
+        ponderNodes.addAndGet(stats.nodes);
+        ponderNanos.addAndGet(stats.elapsedNanos);
+    }
+
+    /**
+     * Count a move whose board had been pondered on
+     */
+    void recordPonderHit() {
+        ponderHits.incrementAndGet();
+    }
+
+    /**
+     * Publish the counters of the AI's transposition table
+     *
+     * @param table the table, or null if the AI searches without one
+     */
+    void watch(TranspositionTable table) {
+        this.table = table;
+    }
+
+    SearchStats getLast() {
+        return last;
+    }
+
+    @Override
+    public int getLastMove() {
+        return last.move;
+    }
+
+    @Override
+    public int getLastDepth() {
+        return last.depth;
+    }
+
+    @Override
+    public int getLastMaxDepth() {
+        return last.maxDepth;
+    }
+
+    @Override
+    public long getLastNodes() {
+        return last.nodes;
+    }
+
+    @Override
+    public long getLastLeaves() {
+        return last.leaves;
+    }
+
+    @Override
+    public long getLastCutoffs() {
+        return last.cutoffs;
+    }
+
+    @Override
+    public double getLastElapsedMillis() {
+        return last.elapsedMillis();
+    }
+
+    @Override
+    public double getLastNodesPerSecond() {
+        return last.nodesPerSecond();
+    }
+
+    @Override
+    public double getLastBranchingFactor() {
+        return last.branchingFactor();
+    }
+
+    @Override
+    public long getMovesSearched() {
+        return movesSearched.get();
+    }
+
+    @Override
+    public long getTotalNodes() {
+        return totalNodes.get();
+    }
+
+    @Override
+    public long getPonderNodes() {
+        return ponderNodes.get();
+    }
+
+    @Override
+    public double getPonderMillis() {
+        return ponderNanos.get() / 1e6;
+    }
+
+    @Override
+    public long getPonderHits() {
+        return ponderHits.get();
+    }
+
+    @Override
+    public long getTableHits() {
+        TranspositionTable table = this.table;
+        return table != null ? table.getHits() : 0;
+    }
+
+    @Override
+    public long getTableMisses() {
+        TranspositionTable table = this.table;
+        return table != null ? table.getMisses() : 0;
+    }
+
+    @Override
+    public long getTableCollisions() {
+        TranspositionTable table = this.table;
+        return table != null ? table.getCollisions() : 0;
+    }
+}
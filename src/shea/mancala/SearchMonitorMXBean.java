@@ -0,0 +1,41 @@
+package shea.mancala;
+
+/**
+ * Search statistics published over JMX as shea.mancala:type=SearchMonitor
+ */
+public interface SearchMonitorMXBean {
+
+    int getLastMove();
+
+    int getLastDepth();
+
+    int getLastMaxDepth();
+
+    long getLastNodes();
+
+    long getLastLeaves();
+
+    long getLastCutoffs();
+
+    double getLastElapsedMillis();
+
+    double getLastNodesPerSecond();
+
+    double getLastBranchingFactor();
+
+    long getMovesSearched();
+
+    long getTotalNodes();
+
+    long getPonderNodes();
+
+    double getPonderMillis();
+
+    long getPonderHits();
+
+    long getTableHits();
+
+    long getTableMisses();
+
+    long getTableCollisions();
+}
@@ -0,0 +1,67 @@
+package shea.mancala;
+
+/**
+ * What a search for one AI move found and how much work it took
+ */
+final class SearchStats {
+
+    /**
+     * The chosen pit, or -1 if there was no move
+     */
+    final int move;
+
+    /**
+     * The heuristic score of the chosen pit for the AI
+     */
+    final int score;
+
+    /**
+     * The deepest fully completed iteration
+     */
+    final int depth;
+
+    /**
+     * The deepest ply any node was visited at
+     */
+    final int maxDepth;
+
+    final long nodes, leaves, cutoffs;
+    final long elapsedNanos;
+
+    SearchStats(int move, int score, int depth, int maxDepth,
+                long nodes, long leaves, long cutoffs, long elapsedNanos) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.maxDepth = maxDepth;
+        this.nodes = nodes;
+        this.leaves = leaves;
+        this.cutoffs = cutoffs;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    double elapsedMillis() {
+        return elapsedNanos / 1e6;
+    }
+
+    double nodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * The branching factor a uniform tree of the same depth and size would have
+     *
+     * @return nodes to the power of 1 / depth
+     */
+    double branchingFactor() {
+        return depth < 1 ? 0 : Math.pow(nodes, 1.0 / depth);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("move %d, score %d, depth %d (max %d), %d nodes, %d leaves, %d cutoffs, "
+                        + "%.1f ms, %.0f nodes/s, branching factor %.2f",
+                move, score, depth, maxDepth, nodes, leaves, cutoffs,
+                elapsedMillis(), nodesPerSecond(), branchingFactor());
+    }
+}
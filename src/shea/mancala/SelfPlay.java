@@ -0,0 +1,228 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Play AI against AI on every core and stream the results to a file.
+ * Engine A plays first in even games and second in odd ones. The first few
+ * plies of each game are random, seeded by the game number, so games differ.
+ * <p>
+ * Usage: SelfPlay [--games N] [--threads N] [--a SETTINGS] [--b SETTINGS]
+ * [--random-plies N] [--seed N] [--table-bits N] [--report SECONDS] [--out FILE]
+ * <p>
+ * Games are written with GameRecordWriter in the order they finish, each
+ * with both players' settings and the time every move took, so
+ * GameRecordTool can read them back.
+ */
+public class SelfPlay {
+
+    private long games = 1000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private AiSettings a = AiSettings.parse("depth=6");
+    private AiSettings b = AiSettings.parse("depth=6");
+    private int randomPlies = 4;
+    private long seed = 1;
+    private int tableBits = 16;
+    private long reportSeconds = 5;
+    private String out = "selfplay.bin";
+
+    /**
+     * Run the games
+     *
+     * @param args see the class description
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SelfPlay selfPlay = new SelfPlay();
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i++]) {
+                case "--games":
+                    selfPlay.games = Long.parseLong(value);
+                    break;
+                case "--threads":
+                    selfPlay.threads = Integer.parseInt(value);
+                    break;
+                case "--a":
+                    selfPlay.a = AiSettings.parse(value);
+                    break;
+                case "--b":
+                    selfPlay.b = AiSettings.parse(value);
+                    break;
+                case "--random-plies":
+                    selfPlay.randomPlies = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    selfPlay.seed = Long.parseLong(value);
+                    break;
+                case "--table-bits":
+                    selfPlay.tableBits = Integer.parseInt(value);
+                    break;
+                case "--report":
+                    selfPlay.reportSeconds = Long.parseLong(value);
+                    break;
+                case "--out":
+                    selfPlay.out = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i - 1]);
+            }
+        }
+
+        selfPlay.run();
+    }
+
+    /**
+     * Play all games, writing each one as it finishes
+     */
+    private void run() throws IOException, InterruptedException {
+        System.out.printf("A: %s, B: %s, %d games on %d threads%n", a, b, games, threads);
+
+        AtomicLong nextGame = new AtomicLong();
+        BlockingQueue<GameRecord> finished = new ArrayBlockingQueue<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> {
+                AiSettings.Player playerA = a.newPlayer(tableBits);
+                AiSettings.Player playerB = b.newPlayer(tableBits);
+
+                for (long n = nextGame.getAndIncrement(); n < games; n = nextGame.getAndIncrement()) {
+                    finished.put(play(n, playerA, playerB));
+                }
+                return null;
+            }));
+        }
+        pool.shutdown();
+
+        long written = 0, aWins = 0, bWins = 0, draws = 0;
+        long started = System.nanoTime(), lastReport = started;
+
+        try (GameRecordWriter output = GameRecordWriter.create(Paths.get(out))) {
+            while (written < games) {
+                // a failed worker is noticed at once, not when the others have run out of games
+                checkWorkers(workers);
+                GameRecord game = finished.poll(1, TimeUnit.SECONDS);
+
+                if (game != null) {
+                    output.write(game);
+                    written++;
+
+                    if (game.winner == 0) {
+                        draws++;
+                    } else if (game.winner == (aIsPlayerOne(game.number) ? 1 : 2)) {
+                        aWins++;
+                    } else {
+                        bWins++;
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now - lastReport >= reportSeconds * 1_000_000_000L || written == games) {
+                    report(written, aWins, bWins, draws, now - started);
+                    output.flush();
+                    lastReport = now;
+                }
+            }
+        } finally {
+            // after a failure the other workers may be searching or blocked on
+            // the full queue, and would keep the JVM from exiting
+            pool.shutdownNow();
+            finished.clear();
+        }
+    }
+
+    /**
+     * Play one game
+     *
+     * @param number  the game number, which seeds the random opening
+     * @param playerA engine A on this thread
+     * @param playerB engine B on this thread
+     * @return the finished game
+     */
+    private GameRecord play(long number, AiSettings.Player playerA, AiSettings.Player playerB) {
+        Random random = new Random(seed * 0x9E3779B97F4A7C15L + number);
+        MancalaEngine engine = new MancalaEngine();
+        boolean aIsPlayerOne = aIsPlayerOne(number);
+
+        byte[] moves = new byte[64];
+        int[] micros = new int[64];
+        int count = 0;
+
+        while (!engine.isGameOver()) {
+            boolean aToMove = (engine.getCurrentPlayer() == 1) == aIsPlayerOne;
+            long started = System.nanoTime();
+            int move;
+
+            if (count < randomPlies) {
+                int[] legal = engine.getLegalMoves();
+                move = legal[random.nextInt(legal.length)];
+            } else if (aToMove) {
+                move = playerA.move(engine.getPits()).move;
+            } else {
+                move = playerB.move(engine.getPits()).move;
+            }
+
+            if (count == moves.length) {
+                moves = Arrays.copyOf(moves, count * 2);
+                micros = Arrays.copyOf(micros, count * 2);
+            }
+            long took = count < randomPlies ? 0 : (System.nanoTime() - started) / 1000;
+            micros[count] = (int) Math.min(took, Integer.MAX_VALUE);
+            moves[count++] = (byte) move;
+
+            engine.applyMove(move);
+        }
+
+        String settingsA = a.toString(), settingsB = b.toString();
+        return GameRecord.of(number, MancalaEngine.START, aIsPlayerOne ? settingsA : settingsB,
+                aIsPlayerOne ? settingsB : settingsA, engine, moves, micros, count);
+    }
+
+    /**
+     * Engine A plays first in even games
+     */
+    private static boolean aIsPlayerOne(long number) {
+        return number % 2 == 0;
+    }
+
+    /**
+     * Print A's score with a 95% confidence interval and the games per second
+     */
+    private static void report(long games, long aWins, long bWins, long draws, long nanos) {
+        double score = (aWins + draws / 2.0) / games;
+        double margin = 1.96 * Math.sqrt(score * (1 - score) / games);
+
+        System.out.printf("%d games: A %d, B %d, draws %d, A scores %.1f%% +/- %.1f%%, %.1f games/s%n",
+                games, aWins, bWins, draws, 100 * score, 100 * margin, games * 1e9 / nanos);
+    }
+
+    /**
+     * Rethrow the failure of any worker that has stopped
+     */
+    private static void checkWorkers(List<Future<?>> workers) throws InterruptedException {
+        for (Future<?> worker : workers) {
+            if (worker.isDone()) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("self-play thread failed", e.getCause());
+                }
+            }
+        }
+    }
+}
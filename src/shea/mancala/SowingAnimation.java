@@ -0,0 +1,131 @@
+package shea.mancala;
+
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.Timer;
+
+/**
+ * Shows a move on a MancalaGame one stone at a time.
+ * A Swing timer ticks at a capped frame rate and drops however many stones
+ * are due by then, so a slow frame never slows the move down. Each tick
+ * repaints only the pits that changed. Runs on the event dispatch thread.
+ */
+final class SowingAnimation implements ActionListener {
+
+    /**
+     * Most frames drawn per second
+     */
+    static final int FPS = Integer.getInteger("mancala.fps", 60);
+
+    /**
+     * Time between two stones landing, in milliseconds
+     */
+    static final int STONE_MILLIS = Integer.getInteger("mancala.stone.millis", 120);
+
+    private final MancalaGame game;
+    private final Timer timer;
+
+    /**
+     * The stones shown while animating, laid out for the player moving
+     */
+    private final int[] shown;
+    private int player;
+
+    private int pointer;
+    private int stones;
+    private int dropped;
+    private long started;
+
+    /**
+     * Run once the move has been shown
+     */
+    private Runnable onFinish;
+
+    SowingAnimation(MancalaGame game) {
+        this.game = game;
+        this.shown = new int[game.engine.getGeometry().size];
+        this.timer = new Timer(Math.max(1, 1000 / FPS), this);
+        this.timer.setCoalesce(true);
+    }
+
+    /**
+     * Start showing a move
+     *
+     * @param before   the board before the move, laid out for the player moving
+     * @param pit      the pit sown
+     * @param player   the player moving
+     * @param onFinish called when the last stone has landed
+     */
+    void start(int[] before, int pit, int player, Runnable onFinish) {
+        System.arraycopy(before, 0, shown, 0, shown.length);
+        this.player = player;
+        this.pointer = pit;
+        this.stones = shown[pit];
+        this.dropped = 0;
+        this.onFinish = onFinish;
+        this.started = System.nanoTime();
+
+        shown[pit] = 0;
+        game.repaint();
+        timer.start();
+    }
+
+    /**
+     * Show the end of the move straight away
+     */
+    void finish() {
+        if (timer.isRunning()) {
+            timer.stop();
+            game.repaint();
+            onFinish.run();
+        }
+    }
+
+    boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    /**
+     * Retrieve the stones shown in a pit
+     *
+     * @param pit a pit number, laid out for the player moving
+     * @return the stones in the pit at this point of the move
+     */
+    int getStones(int pit) {
+        return shown[pit];
+    }
+
+    int getPlayer() {
+        return player;
+    }
+
+    /**
+     * Drop the stones due since the last frame
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+        int due = (int) Math.min(stones, elapsed / STONE_MILLIS + 1);
+        Rectangle dirty = null;
+
+        while (dropped < due) {
+            // the same path as Geometry.sow, wrapping from the last pit to pit 1
+            pointer = pointer == shown.length - 2 ? 1 : pointer + 1;
+            shown[pointer]++;
+            dropped++;
+
+            Rectangle bounds = game.board.getPitBounds(pointer);
+            dirty = dirty == null ? bounds : dirty.union(bounds);
+        }
+
+        if (dirty != null) {
+            game.repaint(dirty);
+        }
+
+        // hold the last stone for a moment before showing captures and the next turn
+        if (dropped == stones && elapsed >= (long) (stones + 1) * STONE_MILLIS) {
+            finish();
+        }
+    }
+}
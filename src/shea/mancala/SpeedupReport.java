@@ -0,0 +1,74 @@
+package shea.mancala;
+
+/**
+ * Time the parallel search against the single-threaded one.
+ * Every board in Positions is searched to a fixed depth with each thread
+ * count, checking that the move and score match the single-threaded search.
+ * <p>
+ * Usage: SpeedupReport [depth] [thread counts...]
+ */
+public class SpeedupReport {
+
+    /**
+     * Print the report
+     *
+     * @param args the depth, default 12, followed by thread counts, default 1 2 4 8 16
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int[] threadCounts = {1, 2, 4, 8, 16};
+
+        if (args.length > 1) {
+            threadCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                threadCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        int[][] boards = Positions.all();
+        int[] moves = new int[boards.length];
+        int[] scores = new int[boards.length];
+
+        // the single-threaded search is both the baseline and the reference result
+        Search search = new Search();
+        for (int[] board : boards) {
+            search.bestMove(board, depth);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < boards.length; i++) {
+            search.getTable().clear();
+            moves[i] = search.bestMove(boards[i], depth);
+            scores[i] = search.getScore();
+        }
+        long baseline = System.nanoTime() - start;
+
+        System.out.printf("Depth %d, %d boards, %d cores%n", depth, boards.length,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %10s %8s %s%n", "threads", "ms", "speedup", "result");
+        System.out.printf("%-12s %10.1f %8.2f %s%n", "sequential", baseline / 1e6, 1.0, "reference");
+
+        for (int threads : threadCounts) {
+            ParallelSearch parallel = new ParallelSearch(threads);
+            for (int[] board : boards) {
+                parallel.bestMove(board, depth);
+            }
+
+            int mismatches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < boards.length; i++) {
+                parallel.getTable().clear();
+                int move = parallel.bestMove(boards[i], depth);
+
+                if (move != moves[i] || parallel.getScore() != scores[i]) {
+                    mismatches++;
+                }
+            }
+            long time = System.nanoTime() - start;
+            parallel.shutdown();
+
+            System.out.printf("%-12d %10.1f %8.2f %s%n", threads, time / 1e6, (double) baseline / time,
+                    mismatches == 0 ? "matches" : mismatches + " mismatches");
+        }
+    }
+}
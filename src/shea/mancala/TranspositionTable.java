@@ -0,0 +1,168 @@
+package shea.mancala;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for the AI search.
+ * Entries live in parallel primitive arrays indexed by the low bits of the
+ * Zobrist hash. A slot is replaced when it is empty, holds the same board,
+ * was written by an earlier search, or was searched to no greater depth.
+ * <p>
+ * The table can be shared between search threads without locking: each key
+ * is stored XORed with its entry, so a slot torn by two threads writing at
+ * once no longer matches its key and is treated as a miss. The counters are
+ * not synchronized and only approximate when the table is shared.
+ */
+final class TranspositionTable {
+
+    /**
+     * Bound types of a stored score
+     */
+    static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /**
+     * Size used when none is given, as a power of two
+     */
+    static final int DEFAULT_BITS = Integer.getInteger("mancala.tt.bits", 20);
+
+    private final long[] keys;
+    private final int[] scores;
+
+    /**
+     * Packed as depth | bound << 8 | (move + 1) << 10 | generation << 14,
+     * zero for an empty slot
+     */
+    private final int[] info;
+
+    private final int mask;
+    private int generation = 1;
+
+    private long hits, misses, collisions;
+
+    /**
+     * Create an empty table
+     *
+     * @param bits the table holds 2^bits entries
+     */
+    TranspositionTable(int bits) {
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("bits must be between 1 and 30");
+        }
+
+        keys = new long[1 << bits];
+        scores = new int[1 << bits];
+        info = new int[1 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Create a table of the default size
+     */
+    TranspositionTable() {
+        this(DEFAULT_BITS);
+    }
+
+    /**
+     * Start a new search, making older entries the first to be replaced
+     */
+    void newSearch() {
+        generation = generation == 0x3FFFF ? 1 : generation + 1;
+    }
+
+    /**
+     * Look up a board
+     *
+     * @param key the board's hash
+     * @return the entry for the board, read with depth(), bound(), move()
+     * and score(), or 0 if it is not stored
+     */
+    long probe(long key) {
+        int slot = (int) key & mask;
+        int info = this.info[slot];
+        long entry = (long) scores[slot] << 32 | info & 0xFFFFFFFFL;
+
+        if (info == 0) {
+            misses++;
+            return 0;
+        }
+
+        if ((keys[slot] ^ entry) != key) {
+            collisions++;
+            return 0;
+        }
+
+        hits++;
+        return entry;
+    }
+
+    static int depth(long entry) {
+        return (int) entry & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) entry >>> 8 & 0x3;
+    }
+
+    static int move(long entry) {
+        return ((int) entry >>> 10 & 0xF) - 1;
+    }
+
+    static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * Store the result of searching a board
+     *
+     * @param key   the board's hash
+     * @param depth the depth the board was searched to
+     * @param bound EXACT, LOWER or UPPER
+     * @param score the score found
+     * @param move  the best pit found, or -1
+     */
+    void store(long key, int depth, int bound, int score, int move) {
+        int slot = (int) key & mask;
+        int old = info[slot];
+
+        if (old != 0 && old >>> 14 == generation && (old & 0xFF) > depth
+                && (keys[slot] ^ ((long) scores[slot] << 32 | old & 0xFFFFFFFFL)) != key) {
+            return;
+        }
+
+        int info = depth | bound << 8 | (move + 1) << 10 | generation << 14;
+        keys[slot] = key ^ ((long) score << 32 | info & 0xFFFFFFFFL);
+        scores[slot] = score;
+        this.info[slot] = info;
+    }
+
+    /**
+     * Empty the table and reset its counters
+     */
+    void clear() {
+        Arrays.fill(info, 0);
+        hits = misses = collisions = 0;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    long getCollisions() {
+        return collisions;
+    }
+
+    @Override
+    public String toString() {
+        long probes = hits + misses + collisions;
+        return String.format("TT %d entries: %d hits, %d misses, %d collisions (%.1f%% hit rate)",
+                size(), hits, misses, collisions, probes == 0 ? 0.0 : 100.0 * hits / probes);
+    }
+}
@@ -0,0 +1,329 @@
+package shea.mancala;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fit the weights of a LinearEvaluator to the results of recorded games
+ * (Texel tuning). Every quiet board of every finished game in the
+ * GameRecord files is a sample: the stones in each of the mover's pits
+ * and store less those in the opponent's matching one, labelled 1 if the
+ * mover went on to win, 1/2 for a draw and 0 for a loss. The weights are
+ * fitted by logistic regression, taking the score as the log odds of
+ * winning.
+ * <p>
+ * With only seven weights, each iteration sums the gradient and Hessian
+ * of the log loss over every sample and takes a full Newton step, which
+ * settles within a few passes. A pass streams the files a batch of games
+ * at a time and sums each batch with a parallel stream on a ForkJoinPool,
+ * so memory stays the same however many games there are.
+ * <p>
+ * The weights are written scaled to ints for Evaluator.load, and the AI
+ * uses them when the mancala.weights property names the file.
+ * <p>
+ * Usage: WeightTuner [--iterations N] [--threads N] [--batch GAMES] [--scale N] [--all] [--out FILE] FILE...
+ */
+public class WeightTuner {
+
+    /**
+     * Six pits and the store
+     */
+    private static final int FEATURES = 7;
+
+    /**
+     * Added to the Hessian's diagonal, so a weight no sample tells anything
+     * about stays put instead of making the step singular
+     */
+    private static final double RIDGE = 1e-3;
+
+    /**
+     * Sums over the samples of a pass, for one thread or merged from several
+     */
+    private static final class Sums {
+        long samples;
+        double loss;
+        final double[] gradient = new double[FEATURES];
+        final double[] hessian = new double[FEATURES * FEATURES];
+
+        /**
+         * Replay a game, adding each of its boards as a sample
+         */
+        void add(GameRecord game, double[] weights, boolean all) {
+            if (game.winner < 0) {
+                return;
+            }
+
+            int[] board = game.getStart();
+            int[] features = new int[FEATURES];
+            int player = 1;
+
+            for (int ply = 0; ply < game.getMoveCount() && !Rules.isGameOver(board); ply++) {
+                if (all || Search.isQuiet(board)) {
+                    for (int i = 0; i < FEATURES; i++) {
+                        features[i] = board[i] - board[i + 7];
+                    }
+                    add(features, game.winner == player ? 1 : game.winner == 0 ? 0.5 : 0, weights);
+                }
+
+                if (!Rules.sow(game.getMove(ply), board)) {
+                    Geometry.STANDARD.swapSides(board);
+                    player = 3 - player;
+                }
+            }
+        }
+
+        private void add(int[] features, double result, double[] weights) {
+            double score = 0;
+            for (int i = 0; i < FEATURES; i++) {
+                score += weights[i] * features[i];
+            }
+
+            double win = 1 / (1 + Math.exp(-score));
+            double clamped = Math.min(Math.max(win, 1e-12), 1 - 1e-12);
+            loss -= result * Math.log(clamped) + (1 - result) * Math.log(1 - clamped);
+            samples++;
+
+            double slope = win * (1 - win);
+            for (int i = 0; i < FEATURES; i++) {
+                gradient[i] += (win - result) * features[i];
+                for (int j = 0; j < FEATURES; j++) {
+                    hessian[i * FEATURES + j] += slope * features[i] * features[j];
+                }
+            }
+        }
+
+        void merge(Sums other) {
+            samples += other.samples;
+            loss += other.loss;
+            for (int i = 0; i < FEATURES; i++) {
+                gradient[i] += other.gradient[i];
+            }
+            for (int i = 0; i < hessian.length; i++) {
+                hessian[i] += other.hessian[i];
+            }
+        }
+    }
+
+    private int iterations = 10;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batch = 4096;
+    private double scale = 100;
+    private boolean all;
+    private Path out = Paths.get("weights.txt");
+    private final List<Path> files = new ArrayList<>();
+
+    /**
+     * Fit the weights and write them out
+     *
+     * @param args see the class description
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        WeightTuner tuner = new WeightTuner();
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--iterations":
+                    tuner.iterations = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--threads":
+                    tuner.threads = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--batch":
+                    tuner.batch = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "--scale":
+                    tuner.scale = Double.parseDouble(value);
+                    i++;
+                    break;
+                case "--all":
+                    tuner.all = true;
+                    break;
+                case "--out":
+                    tuner.out = Paths.get(value);
+                    i++;
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                    }
+                    tuner.files.add(Paths.get(args[i]));
+            }
+        }
+
+        if (tuner.files.isEmpty() || tuner.iterations < 1 || tuner.threads < 1 || tuner.batch < 1) {
+            throw new IllegalArgumentException("usage: WeightTuner [--iterations N] [--threads N] [--batch GAMES]"
+                    + " [--scale N] [--all] [--out FILE] FILE...");
+        }
+
+        tuner.run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        double[] weights = new double[FEATURES];
+        Sums sums;
+
+        try {
+            for (int iteration = 1; iteration <= iterations; iteration++) {
+                long started = System.nanoTime();
+                sums = pass(pool, weights);
+                if (sums.samples == 0) {
+                    throw new IllegalArgumentException("no finished games to learn from");
+                }
+
+                for (int i = 0; i < FEATURES; i++) {
+                    sums.hessian[i * FEATURES + i] += RIDGE * sums.samples;
+                }
+                double[] step = solve(sums.hessian, sums.gradient);
+
+                double largest = 0;
+                for (int i = 0; i < FEATURES; i++) {
+                    weights[i] -= step[i];
+                    largest = Math.max(largest, Math.abs(step[i]));
+                }
+
+                System.out.printf(Locale.ROOT, "%d: %d boards, log loss %.5f, %.1f s, weights %s%n", iteration,
+                        sums.samples, sums.loss / sums.samples, (System.nanoTime() - started) / 1e9, format(weights));
+
+                if (largest < 1e-5) {
+                    break;
+                }
+            }
+
+            // the loss above is from before each step; the header gives the loss of the weights written
+            sums = pass(pool, weights);
+        } finally {
+            pool.shutdown();
+        }
+
+        write(weights, sums);
+    }
+
+    /**
+     * Stream every file once, summing a batch of games at a time in parallel
+     */
+    private Sums pass(ForkJoinPool pool, double[] weights) throws IOException, InterruptedException {
+        Sums total = new Sums();
+        List<GameRecord> games = new ArrayList<>(batch);
+
+        for (Path file : files) {
+            try (GameRecordReader reader = GameRecordReader.open(file)) {
+                for (GameRecord game = reader.next(); game != null; game = reader.next()) {
+                    games.add(game);
+                    if (games.size() == batch) {
+                        total.merge(sum(pool, games, weights));
+                        games.clear();
+                    }
+                }
+            }
+        }
+
+        total.merge(sum(pool, games, weights));
+        return total;
+    }
+
+    private Sums sum(ForkJoinPool pool, List<GameRecord> games, double[] weights) throws InterruptedException {
+        try {
+            return pool.submit(() -> games.parallelStream().collect(Sums::new,
+                    (sums, game) -> sums.add(game, weights, all), Sums::merge)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("tuning thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Solve a small dense system by Gaussian elimination with partial pivoting
+     *
+     * @param matrix the rows of the matrix, changed in place
+     * @param vector the right hand side
+     * @return x such that matrix x = vector
+     */
+    private static double[] solve(double[] matrix, double[] vector) {
+        int n = vector.length;
+        double[] x = vector.clone();
+
+        for (int column = 0; column < n; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < n; row++) {
+                if (Math.abs(matrix[row * n + column]) > Math.abs(matrix[pivot * n + column])) {
+                    pivot = row;
+                }
+            }
+            swapRows(matrix, x, n, column, pivot);
+
+            for (int row = column + 1; row < n; row++) {
+                double factor = matrix[row * n + column] / matrix[column * n + column];
+                for (int k = column; k < n; k++) {
+                    matrix[row * n + k] -= factor * matrix[column * n + k];
+                }
+                x[row] -= factor * x[column];
+            }
+        }
+
+        for (int row = n - 1; row >= 0; row--) {
+            for (int k = row + 1; k < n; k++) {
+                x[row] -= matrix[row * n + k] * x[k];
+            }
+            x[row] /= matrix[row * n + row];
+        }
+        return x;
+    }
+
+    private static void swapRows(double[] matrix, double[] vector, int n, int a, int b) {
+        if (a == b) {
+            return;
+        }
+        for (int k = 0; k < n; k++) {
+            double value = matrix[a * n + k];
+            matrix[a * n + k] = matrix[b * n + k];
+            matrix[b * n + k] = value;
+        }
+        double value = vector[a];
+        vector[a] = vector[b];
+        vector[b] = value;
+    }
+
+    /**
+     * Write the weights as Evaluator.load reads them, scaled to ints, with
+     * the loss they have on the games
+     */
+    private void write(double[] weights, Sums sums) throws IOException {
+        int[] scaled = new int[FEATURES];
+        for (int i = 0; i < FEATURES; i++) {
+            scaled[i] = (int) Math.round(weights[i] * scale);
+        }
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.US_ASCII))) {
+            writer.printf(Locale.ROOT, "# WeightTuner: %d%s boards, log loss %.5f%n", sums.samples,
+                    all ? "" : " quiet", sums.loss / sums.samples);
+            writer.printf(Locale.ROOT, "# log odds per stone, pits 0-5 and store: %s%n", format(weights));
+            writer.printf(Locale.ROOT, "# scaled by %s%n", scale);
+            writer.printf(Locale.ROOT, "pits=%d %d %d %d %d %d%n",
+                    scaled[0], scaled[1], scaled[2], scaled[3], scaled[4], scaled[5]);
+            writer.printf(Locale.ROOT, "store=%d%n", scaled[6]);
+        }
+
+        System.out.println("Wrote " + out);
+    }
+
+    private static String format(double[] weights) {
+        StringBuilder text = new StringBuilder();
+        for (double weight : weights) {
+            text.append(String.format(Locale.ROOT, "%.4f ", weight));
+        }
+        return text.toString().trim();
+    }
+}
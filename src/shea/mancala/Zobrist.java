@@ -0,0 +1,138 @@
+package shea.mancala;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for hashing boards.
+ * A board's hash is the XOR of one key per pit and stone count, so a move
+ * only has to XOR out the old and in the new count of the pits it changed.
+ * The swapped hash of a board is the hash it has once its sides are
+ * swapped, which keeping both lets a search update when the turn passes.
+ */
+final class Zobrist {
+
+    /**
+     * Keys indexed by pit and amount of stones, up to every stone of a six
+     * pit board with the most stones per pit Geometry allows
+     */
+    private static final long[][] KEYS = new long[14][12 * 32 + 1];
+
+    /**
+     * SWAPPED[i] is the key of pit (i + 7) % 14, where pit i ends up when the
+     * sides are swapped, so a board's swapped hash is its hash once the turn passes
+     */
+    private static final long[][] SWAPPED = new long[14][];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6D616E63616C61L);
+
+        // the keys for up to the 48 stones of the standard board come first, as they
+        // did before larger boards were hashed, so the hashes in opening books stay valid
+        for (long[] pit : KEYS) {
+            for (int i = 0; i <= 48; i++) {
+                pit[i] = random.nextLong();
+            }
+        }
+        for (long[] pit : KEYS) {
+            for (int i = 49; i < pit.length; i++) {
+                pit[i] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < 14; i++) {
+            SWAPPED[i] = KEYS[(i + 7) % 14];
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Hash a board from scratch
+     *
+     * @param board the board to hash
+     * @return the hash with the player owning pits 0-5 to move
+     */
+    static long hash(int[] board) {
+        long hash = 0;
+        for (int i = 0; i < 14; i++) {
+            hash ^= KEYS[i][board[i]];
+        }
+        return hash;
+    }
+
+    /**
+     * Hash a board from scratch as it will be laid out once the turn passes
+     *
+     * @param board the board to hash
+     * @return the hash with the player owning pits 7-12 to move
+     */
+    static long hashSwapped(int[] board) {
+        long hash = 0;
+        for (int i = 0; i < 14; i++) {
+            hash ^= SWAPPED[i][board[i]];
+        }
+        return hash;
+    }
+
+    /**
+     * Update a hash after Rules.sow, looking only at the pits the sowing
+     * can have changed: the pit sown, the pits sown into, and on a capture
+     * the opposite pit and store 6
+     *
+     * @param hash   the hash of the board before the move
+     * @param before the board before the move
+     * @param after  the board after sowing pit
+     * @param pit    the pit sown
+     * @return the hash of the board after the move, with the same side to move
+     */
+    static long update(long hash, int[] before, int[] after, int pit) {
+        return update(KEYS, hash, before, after, pit);
+    }
+
+    /**
+     * Update a swapped hash after Rules.sow, as update does a hash
+     *
+     * @param hash   the swapped hash of the board before the move
+     * @param before the board before the move
+     * @param after  the board after sowing pit, before its sides are swapped
+     * @param pit    the pit sown
+     * @return the swapped hash of the board after the move
+     */
+    static long updateSwapped(long hash, int[] before, int[] after, int pit) {
+        return update(SWAPPED, hash, before, after, pit);
+    }
+
+    private static long update(long[][] keys, long hash, int[] before, int[] after, int pit) {
+        int stones = before[pit];
+
+        // a lap or more reaches every pit
+        if (stones >= Rules.LAP) {
+            for (int i = 0; i < 14; i++) {
+                if (before[i] != after[i]) {
+                    hash ^= keys[i][before[i]] ^ keys[i][after[i]];
+                }
+            }
+            return hash;
+        } else if (stones == 0) {
+            return hash;
+        }
+
+        // a bit per pit to look at, so none is XORed twice
+        int changed = 1 << pit;
+        for (int i = 0, next = pit; i < stones; i++) {
+            next = next == Rules.LAP ? 1 : next + 1;
+            changed |= 1 << next;
+        }
+        int last = Rules.lastPit(pit, stones);
+        if (last < 6) {
+            changed |= 1 << 6 | 1 << 12 - last;
+        }
+
+        while (changed != 0) {
+            int i = Integer.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            hash ^= keys[i][before[i]] ^ keys[i][after[i]];
+        }
+        return hash;
+    }
+}